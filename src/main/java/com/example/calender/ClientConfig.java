@@ -15,6 +15,13 @@ public class ClientConfig {
 
     public static final String URL_FXML_PMS = "UrlFxmlPms";
 	public static final String URL_FXML_POS = "UrlFxmlPos";
+	public static final String PARAM_JSON_JOURNAL = "JsonJournal";
+	public static final String PARAM_JSON_JOURNAL_COMPACT_BYTES = "JsonJournalCompactBytes";
+	public static final String PARAM_JSON_WRITE_DELAY_MILLIS = "JsonWriteDelayMillis";
+	public static final String PARAM_JSON_FSYNC_POLICY = "JsonFsyncPolicy";
+	public static final String PARAM_JSON_FSYNC_INTERVAL_MILLIS = "JsonFsyncIntervalMillis";
+	public static final String PARAM_JSON_BINARY_SNAPSHOT = "JsonBinarySnapshot";
+	public static final String PARAM_STORE_BACKEND = "StoreBackend";
 
 	private final Properties properties = new Properties();
 
@@ -1,5 +1,9 @@
 package com.example.calender;
 
+import com.example.calender.config.EventStores;
+import com.example.calender.models.BookRoom;
+import com.example.calender.models.ConflictGroup;
+import com.example.calender.service.TimeLineByDayService;
 import com.vvg.pos.api.Connector;
 import com.vvg.pos.result.LoginResult;
 import javafx.application.Application;
@@ -8,8 +12,13 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.Parent;
 
+import java.util.List;
+
 public class MainApplication extends Application {
 
+    // Chạy không mở giao diện: kiểm tra chồng lấn trên toàn bộ dữ liệu đặt phòng rồi thoát
+    private static final String AUDIT_COMMAND = "--audit-conflicts";
+
     @Override
     public void start(Stage stage) throws Exception {
         Connector.getInstance().setRootUrl(ClientConfig.getInstance().getParam(ClientConfig.PARAM_ROOT_URL));
@@ -23,7 +32,36 @@ public class MainApplication extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        // Ghi nốt các thay đổi đang chờ trên luồng ghi nền và đóng kết nối cơ sở dữ liệu trước khi thoát
+        EventStores.closeAll();
+    }
+
     public static void main(String[] args) {
+        if (args.length > 0 && AUDIT_COMMAND.equals(args[0])) {
+            System.exit(auditConflicts());
+        }
         launch(args);
     }
+
+    // Trả về mã thoát: 0 nếu không có xung đột, 1 nếu có
+    private static int auditConflicts() {
+        long start = System.nanoTime();
+        List<ConflictGroup> groups = TimeLineByDayService.getInstance().auditConflicts();
+        for (ConflictGroup group : groups) {
+            System.out.println("Phòng " + group.getRoomName() + ": " + group.getStart() + " - " + group.getEnd()
+                    + " (" + group.getBookings().size() + " lượt đặt)");
+            for (BookRoom bookRoom : group.getBookings()) {
+                System.out.println("    " + bookRoom.getId() + " | " + bookRoom.getFullName() + " | " + bookRoom.getEmail()
+                        + " | " + bookRoom.getStartDate() + " " + bookRoom.getStartTime()
+                        + " - " + bookRoom.getEndDate() + " " + bookRoom.getEndTime());
+            }
+        }
+        System.out.println("Tìm thấy " + groups.size() + " nhóm xung đột trong "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        // Lần đọc đầu có thể ghi lại file (gán id cho dữ liệu cũ), ghi xong mới thoát
+        EventStores.closeAll();
+        return groups.isEmpty() ? 0 : 1;
+    }
 }
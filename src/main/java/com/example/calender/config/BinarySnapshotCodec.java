@@ -0,0 +1,494 @@
+package com.example.calender.config;
+
+import com.example.calender.models.BookRoom;
+import com.example.calender.models.EventSchedule;
+import com.example.calender.models.Events;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Định dạng snapshot nhị phân gọn cho BookRoom, Events và EventSchedule.
+ * <p>
+ * Cấu trúc file: magic "CFXB", version, tên kiểu, bảng từ điển chuỗi (độ dài + UTF-8),
+ * số bản ghi rồi đến từng bản ghi. Mỗi trường chuỗi được ghi bằng một số varint:
+ * 0 = null, 1 = ngày yyyy-MM-dd (epoch day), 2 = giờ HH:mm (số phút trong ngày),
+ * còn lại là chỉ số trong từ điển + 3. Chỉ ngày/giờ ở dạng chuẩn mới được nén để
+ * khi đọc lại cho ra đúng chuỗi ban đầu.
+ */
+public final class BinarySnapshotCodec {
+
+    public static final String EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x43465842; // "CFXB"
+    // Version 2: thêm id ở đầu mỗi bản ghi; version 3: thêm quy tắc lặp cuối BookRoom.
+    // File version cũ bị bỏ qua và đọc lại từ JSON
+    private static final int VERSION = 3;
+    private static final int TAG_NULL = 0;
+    private static final int TAG_DATE = 1;
+    private static final int TAG_TIME = 2;
+    private static final int TAG_DICTIONARY = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Map<Class<?>, RecordCodec<?>> CODECS = new HashMap<>();
+
+    static {
+        CODECS.put(BookRoom.class, new RecordCodec<BookRoom>() {
+            @Override
+            public void write(BookRoom r, Encoder out) {
+                out.string(r.getId());
+                out.string(r.getFullName());
+                out.string(r.getEmail());
+                out.string(r.getPhoneNumber());
+                out.string(r.getRoomName());
+                out.string(r.getStartDate());
+                out.string(r.getEndDate());
+                out.string(r.getStartTime());
+                out.string(r.getEndTime());
+                out.string(r.getPurpose());
+                out.string(r.getColor());
+                out.string(r.getStatus());
+                out.string(r.getRecurrence());
+            }
+
+            @Override
+            public BookRoom read(Decoder in) throws IOException {
+                return BookRoom.builder()
+                        .id(in.string())
+                        .fullName(in.string())
+                        .email(in.string())
+                        .phoneNumber(in.string())
+                        .roomName(in.string())
+                        .startDate(in.string())
+                        .endDate(in.string())
+                        .startTime(in.string())
+                        .endTime(in.string())
+                        .purpose(in.string())
+                        .color(in.string())
+                        .status(in.string())
+                        .recurrence(in.string())
+                        .build();
+            }
+        });
+        CODECS.put(Events.class, new RecordCodec<Events>() {
+            @Override
+            public void write(Events r, Encoder out) {
+                out.string(r.getId());
+                out.string(r.getName());
+                out.string(r.getDate());
+                out.string(r.getStartHour());
+                out.string(r.getEndHour());
+                out.string(r.getColor());
+                out.string(r.getDescription());
+            }
+
+            @Override
+            public Events read(Decoder in) throws IOException {
+                return Events.builder()
+                        .id(in.string())
+                        .name(in.string())
+                        .date(in.string())
+                        .startHour(in.string())
+                        .endHour(in.string())
+                        .color(in.string())
+                        .description(in.string())
+                        .build();
+            }
+        });
+        CODECS.put(EventSchedule.class, new RecordCodec<EventSchedule>() {
+            @Override
+            public void write(EventSchedule r, Encoder out) {
+                out.string(r.getId());
+                out.string(r.getName());
+                out.date(r.getStartDate());
+                out.date(r.getEndDate());
+                out.string(r.getDescription());
+                out.string(r.getColor());
+            }
+
+            @Override
+            public EventSchedule read(Decoder in) throws IOException {
+                return EventSchedule.builder()
+                        .id(in.string())
+                        .name(in.string())
+                        .startDate(in.date())
+                        .endDate(in.date())
+                        .description(in.string())
+                        .color(in.string())
+                        .build();
+            }
+        });
+    }
+
+    private BinarySnapshotCodec() {
+    }
+
+    public static boolean supports(Class<?> type) {
+        return CODECS.containsKey(type);
+    }
+
+    // timeLineDay.json -> timeLineDay.bin
+    public static File binaryFileFor(String jsonPath) {
+        String base = jsonPath.endsWith(".json") ? jsonPath.substring(0, jsonPath.length() - 5) : jsonPath;
+        return new File(base + EXTENSION);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RecordCodec<T> codecFor(Class<T> type) {
+        RecordCodec<T> codec = (RecordCodec<T>) CODECS.get(type);
+        if (codec == null) {
+            throw new IllegalArgumentException("Không hỗ trợ snapshot nhị phân cho " + type.getName());
+        }
+        return codec;
+    }
+
+    /**
+     * Ghi danh sách ra file nhị phân (qua file tạm rồi đổi tên).
+     */
+    public static <T> void write(File target, List<?> records, Class<T> type, boolean sync) throws IOException {
+        RecordCodec<T> codec = codecFor(type);
+
+        // Lượt 1: gom từ điển chuỗi
+        Encoder collector = new Encoder(null);
+        for (Object record : records) {
+            codec.write(type.cast(record), collector);
+        }
+
+        // Lượt 2: ghi header, từ điển rồi đến các bản ghi vào bộ đệm
+        Encoder encoder = new Encoder(new ByteSink(BUFFER_SIZE), collector.dictionary);
+        ByteSink sink = encoder.out;
+        sink.writeInt(MAGIC);
+        sink.writeByte(VERSION);
+        sink.writeString(type.getName());
+        sink.writeVarLong(collector.dictionary.size());
+        for (String value : collector.dictionary.keySet()) {
+            sink.writeString(value);
+        }
+        sink.writeVarLong(records.size());
+        for (Object record : records) {
+            codec.write(type.cast(record), encoder);
+        }
+
+        Path targetPath = target.toPath();
+        Path temp = targetPath.resolveSibling(target.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(sink.bytes, 0, sink.size);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(true);
+            }
+        }
+        try {
+            Files.move(temp, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Đọc toàn bộ file nhị phân thành danh sách.
+     */
+    public static <T> List<T> read(File source, Class<T> type) throws IOException {
+        RecordCodec<T> codec = codecFor(type);
+        // Snapshot nhị phân nhỏ nên đọc một lần vào bộ nhớ rồi giải mã trên mảng byte
+        ByteSource in = new ByteSource(Files.readAllBytes(source.toPath()));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Không phải snapshot nhị phân hợp lệ: " + source.getPath());
+        }
+        String typeName = in.readString();
+        if (!type.getName().equals(typeName)) {
+            throw new IOException("Snapshot chứa " + typeName + ", cần " + type.getName());
+        }
+
+        String[] dictionary = new String[in.readCount()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = in.readString();
+        }
+
+        int count = in.readCount();
+        List<T> records = new ArrayList<>(count);
+        Decoder decoder = new Decoder(in, dictionary);
+        for (int i = 0; i < count; i++) {
+            records.add(codec.read(decoder));
+        }
+        return records;
+    }
+
+    interface RecordCodec<T> {
+        void write(T record, Encoder out);
+
+        T read(Decoder in) throws IOException;
+    }
+
+    static final class Encoder {
+        private final ByteSink out;
+        private final Map<String, Integer> dictionary;
+
+        // out == null: chỉ gom từ điển, không ghi gì
+        private Encoder(ByteSink out) {
+            this(out, new LinkedHashMap<>());
+        }
+
+        private Encoder(ByteSink out, Map<String, Integer> dictionary) {
+            this.out = out;
+            this.dictionary = dictionary;
+        }
+
+        void string(String value) {
+            if (value == null) {
+                tag(TAG_NULL);
+                return;
+            }
+            int minutes = packTime(value);
+            if (minutes >= 0) {
+                tag(TAG_TIME);
+                tag(minutes);
+                return;
+            }
+            LocalDate date = packDate(value);
+            if (date != null) {
+                tag(TAG_DATE);
+                tag(zigZag(date.toEpochDay()));
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.put(value, index);
+            }
+            tag(TAG_DICTIONARY + index);
+        }
+
+        void date(LocalDate value) {
+            // 0 = null, còn lại là zigzag(epochDay) + 1
+            tag(value == null ? 0 : zigZag(value.toEpochDay()) + 1);
+        }
+
+        private void tag(long value) {
+            if (out != null) {
+                out.writeVarLong(value);
+            }
+        }
+    }
+
+    static final class Decoder {
+        private final ByteSource in;
+        private final String[] dictionary;
+        // Giờ và ngày lặp lại rất nhiều, giải mã một lần rồi dùng chung đối tượng String
+        private final String[] times = new String[24 * 60];
+        private final Map<Long, String> dates = new HashMap<>();
+
+        private Decoder(ByteSource in, String[] dictionary) {
+            this.in = in;
+            this.dictionary = dictionary;
+        }
+
+        String string() throws IOException {
+            long tag = in.readVarLong();
+            if (tag == TAG_NULL) {
+                return null;
+            }
+            if (tag == TAG_TIME) {
+                long value = in.readVarLong();
+                if (value >= times.length) {
+                    throw new IOException("Giờ không hợp lệ trong snapshot nhị phân: " + value);
+                }
+                int minutes = (int) value;
+                String time = times[minutes];
+                if (time == null) {
+                    time = twoDigits(minutes / 60) + ":" + twoDigits(minutes % 60);
+                    times[minutes] = time;
+                }
+                return time;
+            }
+            if (tag == TAG_DATE) {
+                long epochDay = unZigZag(in.readVarLong());
+                String date = dates.get(epochDay);
+                if (date == null) {
+                    date = epochDay(epochDay).toString();
+                    dates.put(epochDay, date);
+                }
+                return date;
+            }
+            long index = tag - TAG_DICTIONARY;
+            if (index < 0 || index >= dictionary.length) {
+                throw new IOException("Chỉ số từ điển không hợp lệ trong snapshot nhị phân: " + tag);
+            }
+            return dictionary[(int) index];
+        }
+
+        LocalDate date() throws IOException {
+            long value = in.readVarLong();
+            return value == 0 ? null : epochDay(unZigZag(value - 1));
+        }
+
+        private static LocalDate epochDay(long epochDay) throws IOException {
+            try {
+                return LocalDate.ofEpochDay(epochDay);
+            } catch (DateTimeException e) {
+                throw new IOException("Ngày không hợp lệ trong snapshot nhị phân: " + epochDay, e);
+            }
+        }
+    }
+
+    // Bộ đệm ghi tự mở rộng, tránh chi phí gọi từng byte qua OutputStream
+    private static final class ByteSink {
+        private byte[] bytes;
+        private int size;
+
+        ByteSink(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            bytes[size++] = (byte) (value >>> 24);
+            bytes[size++] = (byte) (value >>> 16);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(encoded.length);
+            ensure(encoded.length);
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+    }
+
+    private static final class ByteSource {
+        private final byte[] bytes;
+        private int position;
+
+        ByteSource(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private void require(int count) throws IOException {
+            if (count > bytes.length - position) {
+                throw new EOFException("Snapshot nhị phân bị cắt cụt");
+            }
+        }
+
+        int readByte() throws IOException {
+            require(1);
+            return bytes[position++] & 0xFF;
+        }
+
+        int readInt() throws IOException {
+            require(4);
+            int value = ((bytes[position] & 0xFF) << 24) | ((bytes[position + 1] & 0xFF) << 16)
+                    | ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] & 0xFF);
+            position += 4;
+            return value;
+        }
+
+        long readVarLong() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Varint quá dài");
+        }
+
+        // Độ dài chuỗi hoặc số phần tử: mỗi phần tử chiếm ít nhất một byte nên không thể vượt số byte còn lại
+        int readCount() throws IOException {
+            long count = readVarLong();
+            if (count < 0 || count > bytes.length - position) {
+                throw new IOException("Độ dài không hợp lệ trong snapshot nhị phân: " + count);
+            }
+            return (int) count;
+        }
+
+        String readString() throws IOException {
+            int length = readCount();
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+
+    // "HH:mm" -> số phút trong ngày, -1 nếu không đúng dạng chuẩn
+    private static int packTime(String value) {
+        if (value.length() != 5 || value.charAt(2) != ':') {
+            return -1;
+        }
+        int h1 = value.charAt(0) - '0', h2 = value.charAt(1) - '0';
+        int m1 = value.charAt(3) - '0', m2 = value.charAt(4) - '0';
+        if (h1 < 0 || h1 > 9 || h2 < 0 || h2 > 9 || m1 < 0 || m1 > 9 || m2 < 0 || m2 > 9) {
+            return -1;
+        }
+        int hour = h1 * 10 + h2;
+        int minute = m1 * 10 + m2;
+        return hour < 24 && minute < 60 ? hour * 60 + minute : -1;
+    }
+
+    // "yyyy-MM-dd" -> LocalDate, null nếu khi in lại không ra đúng chuỗi ban đầu
+    private static LocalDate packDate(String value) {
+        if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return null;
+        }
+        try {
+            LocalDate date = LocalDate.parse(value);
+            return date.toString().equals(value) ? date : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String twoDigits(int value) {
+        return value < 10 ? "0" + value : String.valueOf(value);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
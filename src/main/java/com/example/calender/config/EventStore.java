@@ -0,0 +1,100 @@
+package com.example.calender.config;
+
+import com.example.calender.models.Identifiable;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Kho lưu trữ sự kiện có kiểu, tách service khỏi cách lưu cụ thể (JSON, shard theo tháng, H2...).
+ * Mỗi bản ghi có một khoảng ngày [ngày bắt đầu, ngày kết thúc], truy vấn theo khoảng
+ * trả về các bản ghi giao với khoảng cần lấy. Backend được chọn qua {@link EventStores}.
+ * Bản ghi được nhận diện bằng id: tìm, sửa, xóa theo id không phải so sánh toàn bộ các trường.
+ */
+public interface EventStore<T extends Identifiable> {
+
+    List<T> loadAll();
+
+    // Các bản ghi giao với khoảng [from, to]
+    List<T> query(LocalDate from, LocalDate to);
+
+    T findById(String id);
+
+    /**
+     * Thêm mới khi {@code previous} là null (gán id nếu chưa có), ngược lại thay bản ghi
+     * có id của {@code previous}. Khi sửa, id của {@code record} luôn bị ghi đè bằng id của
+     * {@code previous} (kể cả khi {@code record} đã có id khác), để bản ghi giữ nguyên id qua các lần sửa.
+     *
+     * @return false nếu không tìm thấy {@code previous}
+     */
+    boolean upsert(T previous, T record);
+
+    // Xóa bản ghi có id của record
+    boolean delete(T record);
+
+    /**
+     * Áp các thay đổi theo thứ tự như một khối: nếu một thay đổi không áp được (hoặc kho ném lỗi) thì
+     * các thay đổi trước đó được hoàn tác và trả về false (hoặc ném tiếp lỗi). Mặc định hoàn tác bằng
+     * thao tác ngược với bản ghi đọc lại theo id; các kho ghi nền còn giữ việc ghi đĩa đến hết khối
+     * để cả nhóm được ghi một lần.
+     */
+    default boolean applyAll(List<StoreChange<T>> changes) {
+        // Thao tác ngược của các thay đổi đã áp, dạng (bản ghi trước, bản ghi sau)
+        Deque<StoreChange<T>> undo = new ArrayDeque<>();
+        boolean complete = false;
+        try {
+            for (StoreChange<T> change : changes) {
+                T before = change.getPrevious() == null ? null : findById(change.getPrevious().getId());
+                boolean applied = change.isDelete()
+                        ? delete(change.getPrevious())
+                        : upsert(change.getPrevious(), change.getRecord());
+                if (!applied) {
+                    return false;
+                }
+                undo.push(change.isDelete() ? StoreChange.delete(before)
+                        : before == null ? StoreChange.insert(change.getRecord())
+                        : StoreChange.update(before, change.getRecord()));
+            }
+            complete = true;
+            return true;
+        } finally {
+            // Kể cả khi kho ném lỗi giữa chừng
+            while (!complete && !undo.isEmpty()) {
+                StoreChange<T> done = undo.pop();
+                if (done.getPrevious() == null) {
+                    delete(done.getRecord());
+                } else if (done.isDelete()) {
+                    upsert(null, done.getPrevious());
+                } else {
+                    upsert(done.getRecord(), done.getPrevious());
+                }
+            }
+        }
+    }
+
+    /**
+     * Đổi mỗi khi kho đọc lại dữ liệu từ nơi lưu (ví dụ file bị sửa ngoài ứng dụng), để chỉ mục dựng
+     * bên ngoài kho biết phải dựng lại. Thay đổi đi qua chính kho không làm đổi giá trị này.
+     * Chỉ đọc bộ đếm, không chạm đĩa nên gọi được trong từng truy vấn; việc kiểm tra nơi lưu nằm ở
+     * {@link #refresh()}. Mặc định 0: kho không phát hiện thay đổi từ bên ngoài.
+     */
+    default long reloadCount() {
+        return 0L;
+    }
+
+    /**
+     * Kiểm tra nơi lưu có bị sửa ngoài ứng dụng không và đọc lại phần đã đổi, {@link #reloadCount()} tăng theo.
+     * Tốn một lần stat cho mỗi file đang mở nên chỉ gọi một lần mỗi lần làm mới view, không gọi trong truy vấn.
+     */
+    default void refresh() {
+    }
+
+    // Chờ đến khi mọi thay đổi đã được ghi xuống đĩa
+    void flush();
+
+    // Giải phóng tài nguyên (kết nối cơ sở dữ liệu...) khi tắt ứng dụng, gọi sau flush(). Mặc định không làm gì
+    default void close() {
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.calender.config;
+
+import com.example.calender.ClientConfig;
+import com.example.calender.models.Identifiable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tạo {@link EventStore} theo backend cấu hình trong ClientConfig ({@code StoreBackend}),
+ * nếu không cấu hình thì dùng backend mặc định của từng kho.
+ */
+public final class EventStores {
+
+    private static final String DATABASE_FILE = "calendar";
+    private static final List<EventStore<?>> STORES = new ArrayList<>();
+
+    private EventStores() {
+    }
+
+    public static synchronized <T extends Identifiable> EventStore<T> create(StoreSpec<T> spec) {
+        StoreBackend backend = StoreBackend.parse(
+                ClientConfig.getInstance().getParam(ClientConfig.PARAM_STORE_BACKEND),
+                spec.getDefaultBackend());
+        if (backend == StoreBackend.SHARDED && spec.getShardDirectory() == null) {
+            backend = StoreBackend.JSON;
+        }
+        EventStore<T> store;
+        switch (backend) {
+            case BINARY:
+                store = new JsonEventStore<>(spec, true);
+                break;
+            case SHARDED:
+                store = newShardedStore(spec);
+                break;
+            case H2:
+                store = new JdbcEventStore<>(databaseUrl(), spec, migrationSource(spec));
+                break;
+            default:
+                store = new JsonEventStore<>(spec, false);
+                break;
+        }
+        STORES.add(store);
+        return store;
+    }
+
+    // Ghi nốt mọi thay đổi của các kho, dùng khi tắt ứng dụng
+    public static void flushAll() {
+        List<EventStore<?>> stores;
+        synchronized (EventStores.class) {
+            stores = new ArrayList<>(STORES);
+        }
+        for (EventStore<?> store : stores) {
+            store.flush();
+        }
+        JsonFileManager.flushAll();
+    }
+
+    // Ghi nốt rồi đóng mọi kho (kết nối H2...), dùng khi tắt ứng dụng; các kho không dùng được nữa sau đó
+    public static void closeAll() {
+        flushAll();
+        List<EventStore<?>> stores;
+        synchronized (EventStores.class) {
+            stores = new ArrayList<>(STORES);
+            STORES.clear();
+        }
+        for (EventStore<?> store : stores) {
+            store.close();
+        }
+    }
+
+    private static <T extends Identifiable> MonthShardedStore<T> newShardedStore(StoreSpec<T> spec) {
+        return new MonthShardedStore<>(spec.getShardDirectory(), spec.getType(),
+                spec.getStartOf(), spec.getEndOf(), spec.getJsonFile());
+    }
+
+    // Dữ liệu hiện có: ưu tiên các shard nếu đã được chia, nếu không thì file JSON
+    private static <T extends Identifiable> EventStore<T> migrationSource(StoreSpec<T> spec) {
+        if (spec.getShardDirectory() != null
+                && new File(JsonFileManager.dataPath(spec.getShardDirectory() + "/" + MonthShardedStore.INDEX_FILE)).exists()) {
+            return newShardedStore(spec);
+        }
+        if (new File(JsonFileManager.dataPath(spec.getJsonFile())).exists()) {
+            return new JsonEventStore<>(spec, false);
+        }
+        return null;
+    }
+
+    private static String databaseUrl() {
+        // H2 yêu cầu đường dẫn tuyệt đối (hoặc bắt đầu bằng ./) cho file cơ sở dữ liệu
+        return "jdbc:h2:" + new File(JsonFileManager.dataPath(DATABASE_FILE)).getAbsolutePath();
+    }
+}
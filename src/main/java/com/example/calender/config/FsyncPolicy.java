@@ -0,0 +1,24 @@
+package com.example.calender.config;
+
+/**
+ * Khi nào dữ liệu đã ghi được ép xuống đĩa (fsync).
+ * ALWAYS: sau mỗi lần ghi, an toàn nhất nhưng chậm nhất.
+ * PERIODIC: tối đa một lần trong mỗi khoảng thời gian cấu hình, phần còn lại được fsync trễ.
+ * NEVER: để hệ điều hành tự quyết định, nhanh nhất nhưng có thể mất dữ liệu khi mất điện.
+ */
+public enum FsyncPolicy {
+    ALWAYS,
+    PERIODIC,
+    NEVER;
+
+    public static FsyncPolicy parse(String value, FsyncPolicy defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+}
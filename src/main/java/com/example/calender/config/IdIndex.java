@@ -0,0 +1,93 @@
+package com.example.calender.config;
+
+import com.example.calender.models.Identifiable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chỉ mục id -> vị trí cho danh sách bản ghi của một {@link JsonFileManager}.
+ * Tìm, sửa, xóa theo id đều O(1); xóa dùng cách đưa bản ghi cuối vào chỗ trống
+ * nên thứ tự bản ghi trong file có thể thay đổi.
+ * Chỉ mục được dựng lại khi file được đọc lại (generation của manager đổi mà không do chính nó).
+ */
+final class IdIndex<T extends Identifiable> {
+
+    private final JsonFileManager manager;
+    private final Class<T> type;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private long indexedGeneration = -1L;
+
+    IdIndex(JsonFileManager manager, Class<T> type) {
+        this.manager = manager;
+        this.type = type;
+    }
+
+    JsonFileManager manager() {
+        return manager;
+    }
+
+    List<T> records() {
+        manager.loadFromFile(type);
+        List<T> records = manager.getEventList(type);
+        if (manager.getGeneration() != indexedGeneration) {
+            positions.clear();
+            for (int i = 0; i < records.size(); i++) {
+                positions.put(records.get(i).getId(), i);
+            }
+            indexedGeneration = manager.getGeneration();
+        }
+        return records;
+    }
+
+    T get(String id) {
+        List<T> records = records();
+        Integer index = id == null ? null : positions.get(id);
+        return index == null ? null : records.get(index);
+    }
+
+    boolean contains(String id) {
+        return get(id) != null;
+    }
+
+    void add(T record) {
+        if (record.getId() == null || contains(record.getId())) {
+            record.setId(Identifiable.newId());
+        }
+        List<T> records = records();
+        manager.addRecord(record);
+        positions.put(record.getId(), records.size() - 1);
+        indexedGeneration = manager.getGeneration();
+    }
+
+    // Thay bản ghi có id đã cho, bản ghi mới giữ nguyên id đó
+    boolean replace(String id, T record) {
+        records();
+        Integer index = id == null ? null : positions.get(id);
+        if (index == null) {
+            return false;
+        }
+        record.setId(id);
+        manager.setRecord(index, record);
+        indexedGeneration = manager.getGeneration();
+        return true;
+    }
+
+    boolean remove(String id) {
+        List<T> records = records();
+        Integer index = id == null ? null : positions.remove(id);
+        if (index == null) {
+            return false;
+        }
+        int last = records.size() - 1;
+        if (index != last) {
+            T moved = records.get(last);
+            manager.setRecord(index, moved);
+            positions.put(moved.getId(), index);
+        }
+        manager.removeRecord(last);
+        indexedGeneration = manager.getGeneration();
+        return true;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.calender.config;
+
+import com.example.calender.models.Identifiable;
+import com.google.gson.Gson;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link EventStore} trên cơ sở dữ liệu SQL nhúng (H2, file nằm trong data/).
+ * Mỗi bản ghi là một dòng: khoảng ngày được lưu thành cột có index để truy vấn theo khoảng,
+ * id của bản ghi nằm trong cột record_id (unique) để tìm khi sửa/xóa,
+ * nội dung bản ghi lưu nguyên dạng JSON trong cột payload.
+ * Lần đầu mở bảng rỗng sẽ chép dữ liệu từ kho nguồn (file JSON hoặc shard hiện có).
+ */
+public class JdbcEventStore<T extends Identifiable> implements EventStore<T> {
+
+    private final StoreSpec<T> spec;
+    private final String table;
+    private final Gson gson = JsonFileManager.newGsonBuilder(new StringDictionary()).create();
+    private final Connection connection;
+
+    public JdbcEventStore(String url, StoreSpec<T> spec, EventStore<T> migrationSource) {
+        this.spec = spec;
+        this.table = spec.getTable();
+        if (!table.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+            throw new IllegalArgumentException("Tên bảng không hợp lệ: " + table);
+        }
+        try {
+            this.connection = DriverManager.getConnection(url, "sa", "");
+            createSchema();
+            if (migrationSource != null && isEmpty()) {
+                insertAll(migrationSource.loadAll());
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Không thể mở cơ sở dữ liệu: " + url, e);
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "record_id VARCHAR, "
+                    + "start_date DATE NOT NULL, "
+                    + "end_date DATE NOT NULL, "
+                    + "payload VARCHAR NOT NULL)");
+            // Bảng tạo trước khi có id: thêm cột record_id, bỏ cột mã băm payload cũ
+            statement.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS record_id VARCHAR");
+            statement.execute("DROP INDEX IF EXISTS " + table + "_hash");
+            statement.execute("ALTER TABLE " + table + " DROP COLUMN IF EXISTS payload_hash");
+            assignMissingIds();
+            statement.execute("CREATE INDEX IF NOT EXISTS " + table + "_start_end ON " + table + " (start_date, end_date)");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + table + "_end ON " + table + " (end_date)");
+            statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + table + "_record_id ON " + table + " (record_id)");
+        }
+    }
+
+    // Gán id cho các dòng cũ chưa có record_id, id được ghi cả vào payload
+    private void assignMissingIds() throws SQLException {
+        try (Statement select = connection.createStatement();
+             ResultSet rs = select.executeQuery("SELECT id, payload FROM " + table + " WHERE record_id IS NULL");
+             PreparedStatement update = connection.prepareStatement("UPDATE " + table
+                     + " SET record_id = ?, payload = ? WHERE id = ?")) {
+            while (rs.next()) {
+                T record = gson.fromJson(rs.getString(2), spec.getType());
+                if (record.getId() == null) {
+                    record.setId(Identifiable.newId());
+                }
+                update.setString(1, record.getId());
+                update.setString(2, gson.toJson(record));
+                update.setLong(3, rs.getLong(1));
+                update.executeUpdate();
+            }
+        }
+    }
+
+    private boolean isEmpty() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT 1 FROM " + table + " LIMIT 1")) {
+            return !rs.next();
+        }
+    }
+
+    // Chép dữ liệu trong một transaction, dùng batch để tránh một lần commit cho mỗi dòng
+    private void insertAll(List<T> records) throws SQLException {
+        if (records.isEmpty()) {
+            return;
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = prepareInsert()) {
+            for (T record : records) {
+                if (record.getId() == null) {
+                    record.setId(Identifiable.newId());
+                }
+                bindRecord(insert, record);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @Override
+    public synchronized List<T> loadAll() {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT payload FROM " + table + " ORDER BY id")) {
+            return readRecords(rs);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public synchronized List<T> query(LocalDate from, LocalDate to) {
+        try (PreparedStatement select = connection.prepareStatement("SELECT payload FROM " + table
+                + " WHERE start_date <= ? AND end_date >= ? ORDER BY id")) {
+            select.setDate(1, Date.valueOf(to));
+            select.setDate(2, Date.valueOf(from));
+            try (ResultSet rs = select.executeQuery()) {
+                return readRecords(rs);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public synchronized T findById(String id) {
+        try (PreparedStatement select = connection.prepareStatement("SELECT payload FROM " + table
+                + " WHERE record_id = ?")) {
+            select.setString(1, id);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? gson.fromJson(rs.getString(1), spec.getType()) : null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized boolean upsert(T previous, T record) {
+        try {
+            if (previous == null) {
+                if (record.getId() == null) {
+                    record.setId(Identifiable.newId());
+                }
+                try (PreparedStatement insert = prepareInsert()) {
+                    bindRecord(insert, record);
+                    insert.executeUpdate();
+                }
+                return true;
+            }
+            record.setId(previous.getId());
+            try (PreparedStatement update = connection.prepareStatement("UPDATE " + table
+                    + " SET record_id = ?, start_date = ?, end_date = ?, payload = ? WHERE record_id = ?")) {
+                bindRecord(update, record);
+                update.setString(5, previous.getId());
+                return update.executeUpdate() > 0;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean delete(T record) {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table
+                + " WHERE record_id = ?")) {
+            delete.setString(1, record.getId());
+            return delete.executeUpdate() > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Cả khối trong một transaction, thay đổi nào không áp được thì rollback toàn bộ
+    @Override
+    public synchronized boolean applyAll(List<StoreChange<T>> changes) {
+        try {
+            connection.setAutoCommit(false);
+            try {
+                for (StoreChange<T> change : changes) {
+                    boolean applied = change.isDelete()
+                            ? delete(change.getPrevious())
+                            : upsert(change.getPrevious(), change.getRecord());
+                    if (!applied) {
+                        connection.rollback();
+                        return false;
+                    }
+                }
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Dữ liệu đã được commit sau mỗi thay đổi, CHECKPOINT ép H2 ghi hết xuống file
+    @Override
+    public synchronized void flush() {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CHECKPOINT");
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Đóng kết nối cuối cùng thì H2 ghi nốt và đóng file cơ sở dữ liệu
+    @Override
+    public synchronized void close() {
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private PreparedStatement prepareInsert() throws SQLException {
+        return connection.prepareStatement("INSERT INTO " + table
+                + " (record_id, start_date, end_date, payload) VALUES (?, ?, ?, ?)");
+    }
+
+    private void bindRecord(PreparedStatement statement, T record) throws SQLException {
+        statement.setString(1, record.getId());
+        statement.setDate(2, Date.valueOf(spec.getStartOf().apply(record)));
+        statement.setDate(3, Date.valueOf(spec.getEndOf().apply(record)));
+        statement.setString(4, gson.toJson(record));
+    }
+
+    private List<T> readRecords(ResultSet rs) throws SQLException {
+        List<T> result = new ArrayList<>();
+        while (rs.next()) {
+            result.add(gson.fromJson(rs.getString(1), spec.getType()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.calender.config;
+
+import com.example.calender.models.Identifiable;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link EventStore} trên một file JSON qua {@link JsonFileManager},
+ * vẫn dùng chung cache, journal và ghi nền của file đó; tìm, sửa, xóa theo id qua {@link IdIndex}.
+ */
+public class JsonEventStore<T extends Identifiable> implements EventStore<T> {
+
+    private final StoreSpec<T> spec;
+    private final JsonFileManager manager;
+    private final IdIndex<T> index;
+
+    public JsonEventStore(StoreSpec<T> spec, boolean binarySnapshot) {
+        this.spec = spec;
+        this.manager = JsonFileManager.getInstance(spec.getJsonFile());
+        this.index = new IdIndex<>(manager, spec.getType());
+        if (binarySnapshot) {
+            manager.setBinarySnapshotEnabled(true);
+        }
+    }
+
+    @Override
+    public synchronized List<T> loadAll() {
+        return new ArrayList<>(index.records());
+    }
+
+    @Override
+    public List<T> query(LocalDate from, LocalDate to) {
+        return manager.loadMatching(spec.getType(), record -> overlaps(record, from, to));
+    }
+
+    // Bản ghi có ngày không đọc được (sửa tay ngoài ứng dụng) bị bỏ qua thay vì làm hỏng cả truy vấn
+    private boolean overlaps(T record, LocalDate from, LocalDate to) {
+        try {
+            return !spec.getStartOf().apply(record).isAfter(to) && !spec.getEndOf().apply(record).isBefore(from);
+        } catch (RuntimeException e) {
+            System.err.println("Bỏ qua bản ghi " + record.getId() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized T findById(String id) {
+        return index.get(id);
+    }
+
+    @Override
+    public synchronized boolean upsert(T previous, T record) {
+        if (previous == null) {
+            index.add(record);
+            return true;
+        }
+        return index.replace(previous.getId(), record);
+    }
+
+    @Override
+    public synchronized boolean delete(T record) {
+        return index.remove(record.getId());
+    }
+
+    // Cả khối được ghi xuống trong một lần ghi nền sau khi áp xong
+    @Override
+    public synchronized boolean applyAll(List<StoreChange<T>> changes) {
+        JsonFileManager.holdWrites();
+        try {
+            return EventStore.super.applyAll(changes);
+        } finally {
+            JsonFileManager.releaseWrites();
+        }
+    }
+
+    @Override
+    public long reloadCount() {
+        return manager.getReloadCount();
+    }
+
+    // Đọc lại file nếu đã đổi trên đĩa
+    @Override
+    public synchronized void refresh() {
+        index.records();
+    }
+
+    @Override
+    public void flush() {
+        manager.flush();
+    }
+}
@@ -1,31 +1,116 @@
 package com.example.calender.config;
 
+import com.example.calender.ClientConfig;
+import com.example.calender.models.Identifiable;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import lombok.Getter;
 
 import java.io.*;
 import java.lang.reflect.Type;
-import java.time.LocalDate;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class JsonFileManager {
 
     private static final Map<String, JsonFileManager> INSTANCES = new HashMap<>();
-    private static final String FILE_PATH = "./src/main/resources/data/";
-    private final Gson gson = new GsonBuilder()
+    private static final String DEFAULT_DATA_ROOT = "./src/main/resources/data/";
+    // Thư mục data/, chỉ test đổi sang thư mục tạm
+    private static volatile String dataRoot = DEFAULT_DATA_ROOT;
+    private static final long DEFAULT_JOURNAL_COMPACT_BYTES = 1024 * 1024;
+    private static final long DEFAULT_WRITE_DELAY_MILLIS = 200;
+    private static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 1000;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    // Mọi thao tác ghi đĩa chạy trên một luồng riêng, luồng UI không bao giờ chờ I/O
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "json-file-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Từ điển riêng của file này, các bản ghi đọc vào dùng chung chuỗi cho phòng, màu, trạng thái, giờ
+    private final StringDictionary dictionary = new StringDictionary();
+    private final Gson gson = newGsonBuilder(dictionary)
             .setPrettyPrinting()
-            .registerTypeAdapter(LocalDate.class, (JsonDeserializer<LocalDate>)
-                    (json, typeOfT, context) -> LocalDate.parse(json.getAsString()))
-            .registerTypeAdapter(LocalDate.class, (JsonSerializer<LocalDate>)
-                    (src, typeOfSrc, context) -> new JsonPrimitive(src.toString()))
             .create();
+    // Số khối thay đổi đang mở (holdWrites), trong lúc đó luồng ghi nền không ghi file nào
+    private static final AtomicInteger WRITE_HOLDS = new AtomicInteger();
+
+    // Mỗi bản ghi journal nằm trên một dòng nên không pretty-print
+    private final Gson compactGson = newGsonBuilder(dictionary).create();
 
     private List<?> eventList;
 
+    // Chế độ journal: mỗi thay đổi được ghi thêm vào <file>.journal thay vì ghi lại toàn bộ file
+    private JsonJournal journal;
+    @Getter
+    private boolean journalEnabled;
+    @Getter
+    private long journalCompactBytes;
+
+    // Ghi nền: các thay đổi trong cửa sổ writeDelayMillis được gộp thành một lần ghi
+    @Getter
+    private long writeDelayMillis;
+    private final List<PendingOp> pendingOps = new ArrayList<>();
+    private boolean snapshotDirty;
+    private boolean writeScheduled;
+    private boolean writing;
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong coalescedMutations = new AtomicLong();
+    private final AtomicLong totalWriteNanos = new AtomicLong();
+    private volatile long lastWriteNanos;
+    private volatile long maxWriteNanos;
+
+    // Chính sách fsync cho snapshot và journal
+    @Getter
+    private FsyncPolicy fsyncPolicy;
+    @Getter
+    private long fsyncIntervalMillis;
+    private long lastFsyncMillis;
+    private boolean deferredSyncScheduled;
+    // Các file (snapshot, journal) đã ghi mà chưa fsync, được fsync hết ở lần fsync trễ kế tiếp
+    private final Set<Path> unsyncedPaths = new HashSet<>();
+
+    // Snapshot nhị phân <file>.bin ghi kèm file JSON, được ưu tiên khi load nếu mới hơn
+    @Getter
+    private boolean binarySnapshotEnabled;
+
+    // Trạng thái cache: file chỉ được parse lại khi mtime, size hoặc generation thay đổi
+    private Class<?> cachedType;
+    private long cachedModified = -1L;
+    private long cachedSize = -1L;
+    private long cachedJournalModified = -1L;
+    private long cachedJournalSize = -1L;
+    private long cachedGeneration = -1L;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
     @SuppressWarnings("unchecked")
     public <T> List<T> getEventList(Class<T> type) {
         return (List<T>) eventList;
@@ -34,19 +119,113 @@ public class JsonFileManager {
     @Getter
     private String filePath;
     private JsonFileManager(String fileName) {
-        this.filePath = FILE_PATH + fileName;
+        this.filePath = dataPath(fileName);
+        this.journal = new JsonJournal(filePath, compactGson);
+        this.journalEnabled = Boolean.parseBoolean(
+                ClientConfig.getInstance().getParam(ClientConfig.PARAM_JSON_JOURNAL));
+        this.journalCompactBytes = parseLong(
+                ClientConfig.getInstance().getParam(ClientConfig.PARAM_JSON_JOURNAL_COMPACT_BYTES),
+                DEFAULT_JOURNAL_COMPACT_BYTES);
+        this.writeDelayMillis = parseLong(
+                ClientConfig.getInstance().getParam(ClientConfig.PARAM_JSON_WRITE_DELAY_MILLIS),
+                DEFAULT_WRITE_DELAY_MILLIS);
+        this.fsyncPolicy = FsyncPolicy.parse(
+                ClientConfig.getInstance().getParam(ClientConfig.PARAM_JSON_FSYNC_POLICY),
+                FsyncPolicy.ALWAYS);
+        this.fsyncIntervalMillis = parseLong(
+                ClientConfig.getInstance().getParam(ClientConfig.PARAM_JSON_FSYNC_INTERVAL_MILLIS),
+                DEFAULT_FSYNC_INTERVAL_MILLIS);
+        this.binarySnapshotEnabled = Boolean.parseBoolean(
+                ClientConfig.getInstance().getParam(ClientConfig.PARAM_JSON_BINARY_SNAPSHOT));
+    }
+
+    // Đường dẫn của một file trong thư mục data/
+    static String dataPath(String fileName) {
+        return dataRoot + fileName;
+    }
+
+    /**
+     * Đổi thư mục data/ cho các manager tạo sau lời gọi này (null là thư mục mặc định), dùng để test
+     * ghi vào thư mục tạm. Manager đã tạo vẫn giữ đường dẫn cũ vì được lưu theo đường dẫn đầy đủ.
+     */
+    static void setDataRoot(String root) {
+        dataRoot = root == null ? DEFAULT_DATA_ROOT : root.endsWith("/") ? root : root + "/";
+    }
+
+    // Các model dùng TypeAdapter viết tay, không đi qua reflection hay cây JsonElement
+    static GsonBuilder newGsonBuilder(StringDictionary dictionary) {
+        return ModelTypeAdapters.register(new GsonBuilder(), dictionary);
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        try {
+            return value == null || value.trim().isEmpty() ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
     }
     public static synchronized JsonFileManager getInstance(String fileName) {
-        return INSTANCES.computeIfAbsent(fileName, JsonFileManager::new);
+        return INSTANCES.computeIfAbsent(dataPath(fileName), path -> new JsonFileManager(fileName));
     }
 
     public void setFilePath(String fileName) {
-        this.filePath = FILE_PATH + fileName;
+        // flush chờ luồng ghi, mà luồng ghi cần khóa của manager: phải gọi trước khi giữ khóa
+        flush();
+        synchronized (this) {
+            this.filePath = dataPath(fileName);
+            this.journal = new JsonJournal(filePath, compactGson);
+            invalidate();
+        }
+    }
+
+    public synchronized void setJournalEnabled(boolean journalEnabled) {
+        this.journalEnabled = journalEnabled;
+    }
+
+    public synchronized void setJournalCompactBytes(long journalCompactBytes) {
+        this.journalCompactBytes = journalCompactBytes;
+    }
+
+    public synchronized void setWriteDelayMillis(long writeDelayMillis) {
+        this.writeDelayMillis = Math.max(0, writeDelayMillis);
+    }
+
+    public synchronized void setBinarySnapshotEnabled(boolean binarySnapshotEnabled) {
+        this.binarySnapshotEnabled = binarySnapshotEnabled;
+    }
+
+    public synchronized void setFsyncPolicy(FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = Math.max(0, fsyncIntervalMillis);
+    }
+
+    // Bỏ cache hiện tại, lần load tiếp theo sẽ parse lại file
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    // Tăng mỗi khi nội dung trong bộ nhớ thay đổi (load lại hoặc lưu)
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    // Tăng mỗi khi danh sách được đọc lại từ đĩa (lần đầu, file bị sửa ngoài ứng dụng, sau invalidate),
+    // không tăng khi chính manager này ghi
+    public long getReloadCount() {
+        return reloads.get();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
     }
 
     // List all JSON files in the data directory
     public List<String> listAvailableFiles() {
-        File dataDir = new File("./src/main/resources/data");
+        File dataDir = new File(dataRoot);
         File[] files = dataDir.listFiles((dir, name) -> name.endsWith(".json"));
         List<String> fileNames = new ArrayList<>();
         if (files != null) {
@@ -57,44 +236,574 @@ public class JsonFileManager {
         return fileNames;
     }
 
-    // Load data from the currently set file with a generic type
-    public <T> void loadFromFile(Class<T> type) {
+    // Load data from the currently set file with a generic type.
+    // Dữ liệu đã parse được giữ lại và chỉ đọc lại khi file trên đĩa thay đổi.
+    public synchronized <T> void loadFromFile(Class<T> type) {
+        File file = new File(filePath);
+        if (isCacheFresh(type, file)) {
+            cacheHits.incrementAndGet();
+            return;
+        }
+        cacheMisses.incrementAndGet();
+
+        int replayed;
+        int assignedIds;
         try {
-            File file = new File(filePath);
-            if (!file.exists()) {
-                eventList = new ArrayList<T>();
+            List<T> loaded = readBinarySnapshot(file, type);
+            if (loaded == null && file.exists()) {
+                try (Reader reader = openReader(file)) {
+                    Type listType = TypeToken.getParameterized(List.class, type).getType();
+                    loaded = gson.fromJson(reader, listType);
+                }
+            }
+            if (loaded == null) {
+                loaded = new ArrayList<>();
+            }
+            // Áp dụng các thay đổi chưa được compact vào snapshot
+            replayed = journal.replay(file, loaded, type);
+            assignedIds = assignMissingIds(loaded);
+            eventList = loaded;
+            reloads.incrementAndGet();
+        } catch (IOException | JsonParseException e) {
+            e.printStackTrace();
+            eventList = new ArrayList<T>();
+            reloads.incrementAndGet();
+            // Không cache kết quả lỗi, lần sau sẽ thử parse lại
+            cachedType = null;
+            return;
+        }
+        generation.incrementAndGet();
+        markCached(type, file);
+        // Dữ liệu cũ chưa có id: ghi lại toàn bộ snapshot để id được giữ cố định từ nay.
+        // Journal còn sót lại từ lần chạy trước nhưng chế độ journal đã tắt: gộp vào snapshot
+        if (assignedIds > 0 || (replayed > 0 && !journalEnabled)) {
+            saveToFile();
+        }
+    }
+
+    // Gán id mới cho bản ghi chưa có id (dữ liệu cũ) hoặc bị trùng id, trả về số bản ghi đã gán
+    private static int assignMissingIds(List<?> records) {
+        Set<String> seen = new HashSet<>();
+        int assigned = 0;
+        for (Object record : records) {
+            if (!(record instanceof Identifiable)) {
+                return assigned;
+            }
+            Identifiable identifiable = (Identifiable) record;
+            if (identifiable.getId() == null || !seen.add(identifiable.getId())) {
+                identifiable.setId(Identifiable.newId());
+                seen.add(identifiable.getId());
+                assigned++;
+            }
+        }
+        return assigned;
+    }
+
+    // Đọc snapshot nhị phân nếu được bật và mới hơn file JSON, null nếu phải đọc JSON
+    private <T> List<T> readBinarySnapshot(File file, Class<T> type) {
+        if (!binarySnapshotEnabled || !BinarySnapshotCodec.supports(type)) {
+            return null;
+        }
+        File binary = BinarySnapshotCodec.binaryFileFor(filePath);
+        if (!binary.exists() || binary.lastModified() < file.lastModified()) {
+            return null;
+        }
+        try {
+            return BinarySnapshotCodec.read(binary, type);
+        } catch (IOException | RuntimeException e) {
+            // Snapshot nhị phân hỏng: quay về đọc JSON
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private boolean isCacheFresh(Class<?> type, File file) {
+        if (eventList != null && type.equals(cachedType) && hasUnwrittenChanges()) {
+            // Bộ nhớ mới hơn file: file chỉ đang bị chính luồng ghi thay đổi, đọc lại sẽ mất thay đổi chưa ghi
+            return true;
+        }
+        // lastModified() và length() trả về 0 nếu file không tồn tại
+        return eventList != null && type.equals(cachedType)
+                && file.lastModified() == cachedModified
+                && file.length() == cachedSize
+                && journal.lastModified() == cachedJournalModified
+                && journal.length() == cachedJournalSize
+                && generation.get() == cachedGeneration;
+    }
+
+    private static Reader openReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    // Lọc dữ liệu: dùng cache nếu còn hợp lệ, nếu không thì đọc dạng stream và chỉ giữ lại
+    // các bản ghi thỏa điều kiện (không nạp toàn bộ file vào bộ nhớ)
+    @SuppressWarnings("unchecked")
+    public synchronized <T> List<T> loadMatching(Class<T> type, Predicate<? super T> filter) {
+        List<T> result = new ArrayList<>();
+        if (isCacheFresh(type, new File(filePath))) {
+            cacheHits.incrementAndGet();
+            for (T record : (List<T>) eventList) {
+                if (filter.test(record)) {
+                    result.add(record);
+                }
+            }
+            return result;
+        }
+        if (!journal.exists()) {
+            boolean[] missingId = {false};
+            forEachRecord(type, record -> {
+                if (filter.test(record)) {
+                    result.add(record);
+                    missingId[0] |= record instanceof Identifiable && ((Identifiable) record).getId() == null;
+                }
+            });
+            if (!missingId[0]) {
+                return result;
+            }
+            result.clear();
+        }
+        // Đọc stream chỉ thấy snapshot JSON: nếu còn journal cần áp dụng hoặc bản ghi chưa có id
+        // thì nạp đầy đủ qua loadFromFile (áp dụng journal, gán id) rồi lọc trên cache
+        loadFromFile(type);
+        for (T record : (List<T>) eventList) {
+            if (filter.test(record)) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    // Đọc tuần tự từng bản ghi trong file và chuyển cho consumer
+    public <T> void forEachRecord(Class<T> type, Consumer<? super T> consumer) {
+        try (RecordIterator<T> iterator = openIterator(type)) {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+            }
+        } catch (IOException | JsonParseException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Mở iterator đọc từng bản ghi; người gọi phải close() sau khi dùng xong
+    public <T> RecordIterator<T> openIterator(Class<T> type) throws IOException {
+        File file = new File(filePath);
+        if (!file.exists() || file.length() == 0) {
+            return new RecordIterator<>(gson, null, type);
+        }
+        return new RecordIterator<>(gson, new JsonReader(openReader(file)), type);
+    }
+
+    public static final class RecordIterator<T> implements Iterator<T>, Closeable {
+        private final Gson gson;
+        private final JsonReader reader;
+        private final Class<T> type;
+        private boolean started;
+
+        private RecordIterator(Gson gson, JsonReader reader, Class<T> type) {
+            this.gson = gson;
+            this.reader = reader;
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (reader == null) {
+                return false;
+            }
+            try {
+                if (!started) {
+                    started = true;
+                    if (reader.peek() == JsonToken.NULL) {
+                        return false;
+                    }
+                    reader.beginArray();
+                }
+                return reader.hasNext();
+            } catch (IOException e) {
+                throw new JsonIOException(e);
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return gson.fromJson(reader, type);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    private void markCached(Class<?> type, File file) {
+        cachedType = type;
+        cachedModified = file.lastModified();
+        cachedSize = file.length();
+        cachedJournalModified = journal.lastModified();
+        cachedJournalSize = journal.length();
+        cachedGeneration = generation.get();
+    }
+
+    // ======================
+    // Mutations
+    // ======================
+    // Các thay đổi được áp dụng ngay vào danh sách trong bộ nhớ, còn việc lưu xuống đĩa
+    // được đẩy sang luồng ghi nền: ở chế độ journal chỉ ghi thêm các dòng thay đổi,
+    // ngược lại ghi lại toàn bộ file một lần cho cả nhóm thay đổi.
+
+    @SuppressWarnings("unchecked")
+    public synchronized <T> void addRecord(T record) {
+        ((List<T>) eventList).add(record);
+        enqueue(new PendingOp(PendingOp.ADD, -1, record));
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized <T> void setRecord(int index, T record) {
+        ((List<T>) eventList).set(index, record);
+        enqueue(new PendingOp(PendingOp.SET, index, record));
+    }
+
+    public synchronized void removeRecord(int index) {
+        eventList.remove(index);
+        enqueue(new PendingOp(PendingOp.REMOVE, index, null));
+    }
+
+    private void enqueue(PendingOp op) {
+        pendingOps.add(op);
+        if (!journalEnabled) {
+            // Không dùng journal: cả nhóm thay đổi được ghi bằng một lần ghi lại toàn bộ file
+            snapshotDirty = true;
+        }
+        cachedGeneration = generation.incrementAndGet();
+        scheduleWrite(writeDelayMillis);
+    }
+
+    private void scheduleWrite(long delayMillis) {
+        if (!writeScheduled) {
+            writeScheduled = true;
+            WRITER.schedule(this::writePending, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Giữ mọi lần ghi nền (trên mọi file) đến khi gọi {@link #releaseWrites()}: một nhóm thay đổi
+     * trải trên nhiều file được ghi xuống cùng nhau, không lần ghi nào thấy nhóm mới áp được một nửa.
+     */
+    public static void holdWrites() {
+        WRITE_HOLDS.incrementAndGet();
+    }
+
+    public static void releaseWrites() {
+        if (WRITE_HOLDS.decrementAndGet() > 0) {
+            return;
+        }
+        List<JsonFileManager> managers;
+        synchronized (JsonFileManager.class) {
+            managers = new ArrayList<>(INSTANCES.values());
+        }
+        for (JsonFileManager manager : managers) {
+            manager.scheduleHeldWrite();
+        }
+    }
+
+    private synchronized void scheduleHeldWrite() {
+        if (snapshotDirty || !pendingOps.isEmpty()) {
+            scheduleWrite(writeDelayMillis);
+        }
+    }
+
+    private synchronized boolean hasUnwrittenChanges() {
+        return snapshotDirty || writing || !pendingOps.isEmpty();
+    }
+
+    // Số thay đổi đang chờ ghi xuống đĩa
+    public synchronized int getPendingMutations() {
+        return pendingOps.size();
+    }
+
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    // Tổng số thay đổi đã được gộp vào các lần ghi
+    public long getCoalescedMutations() {
+        return coalescedMutations.get();
+    }
+
+    public double getLastWriteLatencyMillis() {
+        return lastWriteNanos / 1_000_000.0;
+    }
+
+    public double getMaxWriteLatencyMillis() {
+        return maxWriteNanos / 1_000_000.0;
+    }
+
+    public double getAverageWriteLatencyMillis() {
+        long count = writeCount.get();
+        return count == 0 ? 0 : totalWriteNanos.get() / 1_000_000.0 / count;
+    }
+
+    // Chạy trên luồng ghi: lấy toàn bộ thay đổi đang chờ và ghi trong một lần
+    private void writePending() {
+        List<PendingOp> ops;
+        List<?> snapshot = null;
+        Class<?> type;
+        File file;
+        synchronized (this) {
+            writeScheduled = false;
+            if (eventList == null || (!snapshotDirty && pendingOps.isEmpty()) || WRITE_HOLDS.get() > 0) {
+                // Đang giữ ghi: releaseWrites sẽ lên lịch lại
                 return;
             }
+            ops = new ArrayList<>(pendingOps);
+            pendingOps.clear();
+            if (snapshotDirty || !journalEnabled) {
+                snapshot = new ArrayList<>(eventList);
+                snapshotDirty = false;
+            }
+            type = cachedType;
+            file = new File(filePath);
+            writing = true;
+        }
 
-            try (Reader reader = new FileReader(file)) {
-                Type listType = TypeToken.getParameterized(List.class, type).getType();
-                eventList = gson.fromJson(reader, listType);
+        long start = System.nanoTime();
+        boolean success = false;
+        boolean compact = false;
+        try {
+            if (snapshot != null) {
+                writeSnapshot(file, snapshot, type);
+            } else {
+                List<JsonObject> entries = new ArrayList<>(ops.size());
+                for (PendingOp op : ops) {
+                    entries.add(op.toEntry(journal));
+                }
+                journal.append(file, entries, shouldSyncNow(journal.getPath()));
+                compact = journal.length() > journalCompactBytes;
             }
-        } catch (IOException e) {
+            success = true;
+        } catch (IOException | JsonIOException e) {
             e.printStackTrace();
-            eventList = new ArrayList<T>();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            synchronized (this) {
+                writing = false;
+                if (success) {
+                    writeCount.incrementAndGet();
+                    coalescedMutations.addAndGet(ops.size());
+                    totalWriteNanos.addAndGet(elapsed);
+                    lastWriteNanos = elapsed;
+                    maxWriteNanos = Math.max(maxWriteNanos, elapsed);
+                    // Dữ liệu trong bộ nhớ đã gồm nội dung vừa ghi (và có thể cả thay đổi mới hơn),
+                    // cập nhật lại dấu cache để file vừa ghi không bị coi là thay đổi từ bên ngoài
+                    if (cachedType != null) {
+                        markCached(cachedType, file);
+                    }
+                } else {
+                    // Ghi lỗi: lần sau sẽ ghi lại toàn bộ file
+                    snapshotDirty = true;
+                }
+                if (compact) {
+                    // Journal đã quá lớn: gộp vào snapshot mới ngay trên luồng ghi
+                    snapshotDirty = true;
+                    scheduleWrite(0);
+                }
+            }
+        }
+    }
+
+    private void writeSnapshot(File file, List<?> snapshot, Class<?> type) throws IOException {
+        boolean sync = shouldSyncNow(file.toPath());
+        writeJson(file, snapshot, sync);
+        if (binarySnapshotEnabled && type != null && BinarySnapshotCodec.supports(type)) {
+            // Ghi sau file JSON để snapshot nhị phân luôn mới hơn khi load
+            BinarySnapshotCodec.write(BinarySnapshotCodec.binaryFileFor(file.getPath()), snapshot, type, sync);
         }
+        // Snapshot đã chứa mọi thay đổi trong journal
+        journal.discard();
     }
 
+    // Ghi JSON ra file tạm rồi đổi tên đè lên file cũ, tắt đột ngột giữa chừng
+    // thì file cũ vẫn còn nguyên vẹn
+    private void writeJson(File file, List<?> snapshot, boolean sync) throws IOException {
+        // Tạo thư mục cha nếu chưa tồn tại
+        File parentDir = file.getAbsoluteFile().getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
 
-    // Save data to the currently set file
-    public void saveToFile() {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    Channels.newOutputStream(channel), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            gson.toJson(snapshot, writer);
+            writer.flush();
+            if (sync) {
+                channel.force(true);
+            }
+        }
         try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (sync) {
+            syncDirectory(parentDir);
+        }
+    }
+
+    // Chuyển file JSON hiện tại sang snapshot nhị phân <file>.bin
+    public <T> void convertJsonToBinary(Class<T> type) throws IOException {
+        flush();
+        File file = new File(filePath);
+        List<T> records;
+        try (Reader reader = openReader(file)) {
+            records = gson.fromJson(reader, TypeToken.getParameterized(List.class, type).getType());
+        }
+        BinarySnapshotCodec.write(BinarySnapshotCodec.binaryFileFor(filePath),
+                records != null ? records : new ArrayList<T>(), type, true);
+    }
+
+    // Chuyển snapshot nhị phân <file>.bin ngược lại thành file JSON
+    public <T> void convertBinaryToJson(Class<T> type) throws IOException {
+        flush();
+        List<T> records = BinarySnapshotCodec.read(BinarySnapshotCodec.binaryFileFor(filePath), type);
+        synchronized (this) {
             File file = new File(filePath);
+            // Snapshot nhị phân không gồm các thay đổi còn nằm trong journal
+            journal.replay(file, records, type);
+            writeJson(file, records, true);
+            journal.discard();
+            invalidate();
+        }
+    }
 
-            // Tạo thư mục cha nếu chưa tồn tại
-            File parentDir = file.getParentFile();
-            if (parentDir != null && !parentDir.exists()) {
-                parentDir.mkdirs();
+    // Quyết định có fsync lần ghi này hay không theo fsyncPolicy
+    private synchronized boolean shouldSyncNow(Path path) {
+        switch (fsyncPolicy) {
+            case ALWAYS:
+                return true;
+            case PERIODIC:
+                long now = System.currentTimeMillis();
+                if (now - lastFsyncMillis >= fsyncIntervalMillis) {
+                    lastFsyncMillis = now;
+                    unsyncedPaths.remove(path);
+                    return true;
+                }
+                // Chưa đến lượt: fsync trễ khi hết khoảng thời gian
+                unsyncedPaths.add(path);
+                if (!deferredSyncScheduled) {
+                    deferredSyncScheduled = true;
+                    WRITER.schedule(this::deferredSync, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private void deferredSync() {
+        List<Path> paths;
+        synchronized (this) {
+            paths = new ArrayList<>(unsyncedPaths);
+            unsyncedPaths.clear();
+            deferredSyncScheduled = false;
+            lastFsyncMillis = System.currentTimeMillis();
+        }
+        for (Path path : paths) {
+            // Journal đã bị gộp/xóa thì bỏ qua, không chặn các file còn lại
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            } catch (IOException e) {
+                e.printStackTrace();
             }
+        }
+    }
+
+    // fsync thư mục để thao tác đổi tên cũng được ghi bền vững (không hỗ trợ trên Windows)
+    private static void syncDirectory(File dir) {
+        if (dir == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Save data to the currently set file (ghi lại toàn bộ file trên luồng ghi nền)
+    public synchronized void saveToFile() {
+        if (eventList == null) {
+            return;
+        }
+        snapshotDirty = true;
+        scheduleWrite(writeDelayMillis);
+    }
 
-            // Ghi file (nếu chưa có sẽ tự tạo file mới)
-            try (FileWriter writer = new FileWriter(file)) {
-                gson.toJson(eventList, writer);
+    // Chờ đến khi mọi thay đổi đã được ghi xuống đĩa, dùng khi tắt ứng dụng
+    public void flush() {
+        // Lặp lại vì một lần ghi journal có thể kích hoạt thêm lần compact
+        while (hasUnwrittenChanges()) {
+            long writesBefore = writeCount.get();
+            try {
+                WRITER.submit(this::writePending).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                return;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            if (writeCount.get() == writesBefore) {
+                // Ghi thất bại, lỗi đã được in ra; tránh lặp vô hạn
+                return;
+            }
+        }
+    }
+
+    public static void flushAll() {
+        List<JsonFileManager> managers;
+        synchronized (JsonFileManager.class) {
+            managers = new ArrayList<>(INSTANCES.values());
+        }
+        for (JsonFileManager manager : managers) {
+            manager.flush();
         }
     }
 
+    private static final class PendingOp {
+        static final int ADD = 0;
+        static final int SET = 1;
+        static final int REMOVE = 2;
+
+        final int type;
+        final int index;
+        final Object record;
+
+        PendingOp(int type, int index, Object record) {
+            this.type = type;
+            this.index = index;
+            this.record = record;
+        }
+
+        JsonObject toEntry(JsonJournal journal) {
+            switch (type) {
+                case ADD:
+                    return journal.addEntry(record);
+                case SET:
+                    return journal.setEntry(index, record);
+                default:
+                    return journal.removeEntry(index);
+            }
+        }
+    }
 }
@@ -0,0 +1,167 @@
+package com.example.calender.config;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Nhật ký ghi thêm (append-only) nằm cạnh file JSON snapshot.
+ * Mỗi thay đổi được ghi thành một dòng JSON, khi load sẽ được áp dụng lại lên snapshot.
+ * Dòng đầu tiên ghi lại kích thước và mtime của snapshot mà nhật ký dựa trên,
+ * nếu snapshot đã được ghi lại (compact) thì nhật ký cũ bị bỏ qua.
+ */
+class JsonJournal {
+
+    static final String SUFFIX = ".journal";
+
+    private static final String OP_BASE = "base";
+    private static final String OP_ADD = "add";
+    private static final String OP_SET = "set";
+    private static final String OP_REMOVE = "remove";
+
+    private final File file;
+    private final Gson gson;
+
+    JsonJournal(String snapshotPath, Gson gson) {
+        this.file = new File(snapshotPath + SUFFIX);
+        this.gson = gson;
+    }
+
+    boolean exists() {
+        return file.exists();
+    }
+
+    long length() {
+        return file.length();
+    }
+
+    long lastModified() {
+        return file.lastModified();
+    }
+
+    Path getPath() {
+        return file.toPath();
+    }
+
+    JsonObject addEntry(Object record) {
+        JsonObject entry = entry(OP_ADD);
+        entry.add("record", gson.toJsonTree(record));
+        return entry;
+    }
+
+    JsonObject setEntry(int index, Object record) {
+        JsonObject entry = entry(OP_SET);
+        entry.addProperty("index", index);
+        entry.add("record", gson.toJsonTree(record));
+        return entry;
+    }
+
+    JsonObject removeEntry(int index) {
+        JsonObject entry = entry(OP_REMOVE);
+        entry.addProperty("index", index);
+        return entry;
+    }
+
+    // Snapshot đã chứa toàn bộ dữ liệu, nhật ký không còn cần thiết
+    void discard() {
+        if (file.exists() && !file.delete()) {
+            System.err.println("Không thể xóa journal: " + file.getPath());
+        }
+    }
+
+    /**
+     * Áp dụng các thay đổi trong nhật ký lên danh sách vừa đọc từ snapshot.
+     * Dòng hỏng ở cuối (do ghi dở khi tắt đột ngột) sẽ bị bỏ qua.
+     *
+     * @return số thay đổi đã áp dụng
+     */
+    <T> int replay(File snapshot, List<T> target, Class<T> type) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        int applied = 0;
+        boolean stale;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            // Nhật ký thuộc về snapshot cũ, các thay đổi đã nằm trong snapshot hiện tại
+            stale = line == null || !matchesSnapshot(line, snapshot);
+            while (!stale && (line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    JsonObject entry = JsonParser.parseString(line).getAsJsonObject();
+                    String op = entry.get("op").getAsString();
+                    if (OP_ADD.equals(op)) {
+                        target.add(gson.fromJson(entry.get("record"), type));
+                    } else if (OP_SET.equals(op)) {
+                        target.set(entry.get("index").getAsInt(), gson.fromJson(entry.get("record"), type));
+                    } else if (OP_REMOVE.equals(op)) {
+                        target.remove(entry.get("index").getAsInt());
+                    }
+                    applied++;
+                } catch (JsonParseException | IllegalStateException | IndexOutOfBoundsException e) {
+                    System.err.println("Bỏ qua phần cuối journal bị hỏng: " + file.getPath());
+                    break;
+                }
+            }
+        }
+        // Xóa sau khi đã đóng file (Windows không xóa được file đang mở)
+        if (stale) {
+            discard();
+        }
+        return applied;
+    }
+
+    private boolean matchesSnapshot(String header, File snapshot) {
+        try {
+            JsonObject base = JsonParser.parseString(header).getAsJsonObject();
+            return OP_BASE.equals(base.get("op").getAsString())
+                    && base.get("size").getAsLong() == snapshot.length()
+                    && base.get("modified").getAsLong() == snapshot.lastModified();
+        } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    // Ghi một nhóm thay đổi trong một lần mở file (group commit)
+    void append(File snapshot, List<JsonObject> entries, boolean sync) throws IOException {
+        boolean newJournal = !file.exists();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+            if (newJournal) {
+                JsonObject base = entry(OP_BASE);
+                base.addProperty("size", snapshot.length());
+                base.addProperty("modified", snapshot.lastModified());
+                writer.write(gson.toJson(base));
+                writer.write('\n');
+            }
+            for (JsonObject entry : entries) {
+                writer.write(gson.toJson(entry));
+                writer.write('\n');
+            }
+            writer.flush();
+            if (sync) {
+                channel.force(false);
+            }
+        }
+    }
+
+    private static JsonObject entry(String op) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("op", op);
+        return entry;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.calender.config;
+
+import com.example.calender.models.BookRoom;
+import com.example.calender.models.EventSchedule;
+import com.example.calender.models.Events;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * TypeAdapter viết tay cho các model, đọc/ghi trực tiếp trên JsonReader/JsonWriter
+ * thay vì để Gson dùng reflection và dựng cây JsonElement cho từng ngày.
+ * Thứ tự trường khi ghi giống thứ tự khai báo trong model nên file JSON không đổi,
+ * trường null vẫn bị bỏ qua như mặc định của Gson, trường lạ khi đọc được bỏ qua.
+ * Các trường ít giá trị khác nhau được đưa qua {@link StringDictionary} của kho khi đọc.
+ */
+final class ModelTypeAdapters {
+
+    private ModelTypeAdapters() {
+    }
+
+    static GsonBuilder register(GsonBuilder builder, StringDictionary dictionary) {
+        return builder
+                .registerTypeAdapter(LocalDate.class, new LocalDateAdapter().nullSafe())
+                .registerTypeAdapter(BookRoom.class, new BookRoomAdapter(dictionary).nullSafe())
+                .registerTypeAdapter(Events.class, new EventsAdapter(dictionary).nullSafe())
+                .registerTypeAdapter(EventSchedule.class, new EventScheduleAdapter(dictionary).nullSafe());
+    }
+
+    // Giống adapter String mặc định của Gson: chấp nhận cả số và boolean
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    private static LocalDate readDate(JsonReader in) throws IOException {
+        String value = readString(in);
+        return value == null ? null : LocalDate.parse(value);
+    }
+
+    static final class LocalDateAdapter extends TypeAdapter<LocalDate> {
+        @Override
+        public void write(JsonWriter out, LocalDate value) throws IOException {
+            out.value(value.toString());
+        }
+
+        @Override
+        public LocalDate read(JsonReader in) throws IOException {
+            return LocalDate.parse(in.nextString());
+        }
+    }
+
+    static final class BookRoomAdapter extends TypeAdapter<BookRoom> {
+        private final StringDictionary dictionary;
+
+        BookRoomAdapter(StringDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void write(JsonWriter out, BookRoom value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.getId());
+            out.name("fullName").value(value.getFullName());
+            out.name("email").value(value.getEmail());
+            out.name("phoneNumber").value(value.getPhoneNumber());
+            out.name("roomName").value(value.getRoomName());
+            out.name("startDate").value(value.getStartDate());
+            out.name("endDate").value(value.getEndDate());
+            out.name("startTime").value(value.getStartTime());
+            out.name("endTime").value(value.getEndTime());
+            out.name("purpose").value(value.getPurpose());
+            out.name("color").value(value.getColor());
+            out.name("status").value(value.getStatus());
+            out.name("recurrence").value(value.getRecurrence());
+            out.endObject();
+        }
+
+        @Override
+        public BookRoom read(JsonReader in) throws IOException {
+            BookRoom.BookRoomBuilder builder = BookRoom.builder();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        builder.id(readString(in));
+                        break;
+                    case "fullName":
+                        builder.fullName(readString(in));
+                        break;
+                    case "email":
+                        builder.email(readString(in));
+                        break;
+                    case "phoneNumber":
+                        builder.phoneNumber(readString(in));
+                        break;
+                    case "roomName":
+                        builder.roomName(dictionary.intern(readString(in)));
+                        break;
+                    case "startDate":
+                        builder.startDate(readString(in));
+                        break;
+                    case "endDate":
+                        builder.endDate(readString(in));
+                        break;
+                    case "startTime":
+                        builder.startTime(dictionary.intern(readString(in)));
+                        break;
+                    case "endTime":
+                        builder.endTime(dictionary.intern(readString(in)));
+                        break;
+                    case "purpose":
+                        builder.purpose(readString(in));
+                        break;
+                    case "color":
+                        builder.color(dictionary.intern(readString(in)));
+                        break;
+                    case "status":
+                        builder.status(dictionary.intern(readString(in)));
+                        break;
+                    case "recurrence":
+                        builder.recurrence(readString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return builder.build();
+        }
+    }
+
+    static final class EventsAdapter extends TypeAdapter<Events> {
+        private final StringDictionary dictionary;
+
+        EventsAdapter(StringDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void write(JsonWriter out, Events value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.getId());
+            out.name("name").value(value.getName());
+            out.name("date").value(value.getDate());
+            out.name("startHour").value(value.getStartHour());
+            out.name("endHour").value(value.getEndHour());
+            out.name("color").value(value.getColor());
+            out.name("description").value(value.getDescription());
+            out.endObject();
+        }
+
+        @Override
+        public Events read(JsonReader in) throws IOException {
+            Events.EventsBuilder builder = Events.builder();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        builder.id(readString(in));
+                        break;
+                    case "name":
+                        builder.name(readString(in));
+                        break;
+                    case "date":
+                        builder.date(readString(in));
+                        break;
+                    case "startHour":
+                        builder.startHour(dictionary.intern(readString(in)));
+                        break;
+                    case "endHour":
+                        builder.endHour(dictionary.intern(readString(in)));
+                        break;
+                    case "color":
+                        builder.color(dictionary.intern(readString(in)));
+                        break;
+                    case "description":
+                        builder.description(readString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return builder.build();
+        }
+    }
+
+    static final class EventScheduleAdapter extends TypeAdapter<EventSchedule> {
+        private final StringDictionary dictionary;
+
+        EventScheduleAdapter(StringDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void write(JsonWriter out, EventSchedule value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.getId());
+            out.name("name").value(value.getName());
+            out.name("startDate").value(value.getStartDate() == null ? null : value.getStartDate().toString());
+            out.name("endDate").value(value.getEndDate() == null ? null : value.getEndDate().toString());
+            out.name("description").value(value.getDescription());
+            out.name("color").value(value.getColor());
+            out.endObject();
+        }
+
+        @Override
+        public EventSchedule read(JsonReader in) throws IOException {
+            EventSchedule.EventScheduleBuilder builder = EventSchedule.builder();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        builder.id(readString(in));
+                        break;
+                    case "name":
+                        builder.name(readString(in));
+                        break;
+                    case "startDate":
+                        builder.startDate(readDate(in));
+                        break;
+                    case "endDate":
+                        builder.endDate(readDate(in));
+                        break;
+                    case "description":
+                        builder.description(readString(in));
+                        break;
+                    case "color":
+                        builder.color(dictionary.intern(readString(in)));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return builder.build();
+        }
+    }
+}
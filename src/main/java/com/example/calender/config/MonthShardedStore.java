@@ -0,0 +1,341 @@
+package com.example.calender.config;
+
+import com.example.calender.models.Identifiable;
+import com.google.gson.JsonParseException;
+import lombok.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Lưu dữ liệu theo từng tháng: mỗi tháng một file {@code <dir>/yyyy-MM.json} (theo ngày bắt đầu),
+ * kèm file chỉ mục {@code <dir>/index.json} ghi khoảng ngày [minStart, maxEnd] của từng shard.
+ * Truy vấn theo khoảng ngày chỉ mở các shard có khoảng ngày giao với khoảng cần lấy,
+ * nên bản ghi kéo dài qua nhiều tháng vẫn được tìm thấy từ shard của tháng bắt đầu.
+ * Mỗi shard là một {@link JsonFileManager} nên vẫn có cache, journal và ghi nền.
+ */
+public class MonthShardedStore<T extends Identifiable> implements EventStore<T> {
+
+    static final String INDEX_FILE = "index.json";
+
+    private final String directory;
+    private final Class<T> type;
+    private final Function<T, LocalDate> startOf;
+    private final Function<T, LocalDate> endOf;
+    private final JsonFileManager indexManager;
+    private final Map<YearMonth, ShardInfo> shards = new TreeMap<>();
+    private final Map<YearMonth, IdIndex<T>> indexes = new HashMap<>();
+    // Đang chia file cũ: index.json chỉ được ghi một lần sau khi chia xong
+    private boolean migrating;
+
+    /**
+     * @param directory  thư mục con trong data/, ví dụ "bookings"
+     * @param legacyFile file JSON cũ (một file duy nhất) sẽ được chia shard ở lần chạy đầu, có thể null
+     */
+    public MonthShardedStore(String directory, Class<T> type, Function<T, LocalDate> startOf,
+                             Function<T, LocalDate> endOf, String legacyFile) {
+        this.directory = directory;
+        this.type = type;
+        this.startOf = startOf;
+        this.endOf = endOf;
+        this.indexManager = JsonFileManager.getInstance(directory + "/" + INDEX_FILE);
+
+        boolean hasIndex = new File(indexManager.getFilePath()).exists();
+        indexManager.loadFromFile(ShardInfo.class);
+        for (ShardInfo info : indexManager.getEventList(ShardInfo.class)) {
+            shards.put(YearMonth.parse(info.getMonth()), info);
+        }
+        if (!hasIndex && legacyFile != null) {
+            migrate(legacyFile);
+        }
+    }
+
+    /**
+     * Chia file JSON cũ thành các shard theo tháng, file cũ được giữ nguyên. index.json chỉ được ghi sau khi
+     * mọi shard đã xuống đĩa, nên có index.json nghĩa là lần chia đã xong; lần chia bị dừng giữa chừng
+     * được làm lại từ đầu ở lần chạy sau. Bản ghi có ngày không đọc được bị bỏ qua.
+     */
+    private void migrate(String legacyFile) {
+        JsonFileManager legacy = JsonFileManager.getInstance(legacyFile);
+        if (!new File(legacy.getFilePath()).exists()) {
+            return;
+        }
+        discardPartialShards();
+        migrating = true;
+        try (JsonFileManager.RecordIterator<T> records = legacy.openIterator(type)) {
+            while (records.hasNext()) {
+                T record = records.next();
+                try {
+                    add(record);
+                } catch (RuntimeException e) {
+                    System.err.println("Bỏ qua bản ghi " + record.getId() + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException | JsonParseException e) {
+            // Không đọc hết được file cũ: không ghi index.json để lần chạy sau chia lại
+            e.printStackTrace();
+            return;
+        } finally {
+            migrating = false;
+        }
+        for (YearMonth month : shards.keySet()) {
+            shard(month).flush();
+        }
+        for (ShardInfo info : shards.values()) {
+            indexManager.addRecord(info);
+        }
+        // Ghi cả file (không chỉ journal) để index.json có mặt trên đĩa
+        indexManager.saveToFile();
+        indexManager.flush();
+    }
+
+    // Xóa shard còn sót từ lần chia bị dừng trước khi ghi index.json, để bản ghi không bị thêm hai lần
+    private void discardPartialShards() {
+        File[] partial = new File(indexManager.getFilePath()).getParentFile()
+                .listFiles((dir, name) -> name.matches("\\d{4}-\\d{2}\\..+"));
+        if (partial == null) {
+            return;
+        }
+        for (File file : partial) {
+            if (!file.delete()) {
+                System.err.println("Không xóa được shard dở dang: " + file.getPath());
+            }
+        }
+    }
+
+    @Override
+    public synchronized List<T> loadAll() {
+        List<T> result = new ArrayList<>();
+        for (YearMonth month : shards.keySet()) {
+            result.addAll(load(month));
+        }
+        return result;
+    }
+
+    // Các bản ghi giao với khoảng [from, to], chỉ đọc các shard liên quan
+    @Override
+    public synchronized List<T> query(LocalDate from, LocalDate to) {
+        List<T> result = new ArrayList<>();
+        for (Map.Entry<YearMonth, ShardInfo> entry : shards.entrySet()) {
+            ShardInfo info = entry.getValue();
+            if (LocalDate.parse(info.getMinStart()).isAfter(to)
+                    || LocalDate.parse(info.getMaxEnd()).isBefore(from)) {
+                continue;
+            }
+            for (T record : load(entry.getKey())) {
+                if (overlaps(record, from, to)) {
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Bản ghi có ngày không đọc được (sửa tay ngoài ứng dụng) bị bỏ qua thay vì làm hỏng cả truy vấn
+    private boolean overlaps(T record, LocalDate from, LocalDate to) {
+        try {
+            return !startOf.apply(record).isAfter(to) && !endOf.apply(record).isBefore(from);
+        } catch (RuntimeException e) {
+            System.err.println("Bỏ qua bản ghi " + record.getId() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public synchronized List<T> filter(Predicate<? super T> predicate) {
+        List<T> result = new ArrayList<>();
+        for (YearMonth month : shards.keySet()) {
+            for (T record : load(month)) {
+                if (predicate.test(record)) {
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean upsert(T previous, T record) {
+        if (previous == null) {
+            add(record);
+            return true;
+        }
+        return update(previous, record);
+    }
+
+    public synchronized void add(T record) {
+        // Đọc ngày trước khi ghi vào shard: ngày lỗi thì shard và index.json đều không đổi
+        LocalDate start = startOf.apply(record);
+        LocalDate end = endOf.apply(record);
+        requireDates(record, start, end);
+        add(record, start, end);
+    }
+
+    private static void requireDates(Identifiable record, LocalDate start, LocalDate end) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Thiếu ngày bắt đầu hoặc kết thúc: " + record.getId());
+        }
+    }
+
+    private void add(T record, LocalDate start, LocalDate end) {
+        YearMonth month = YearMonth.from(start);
+        index(month).add(record);
+        expandIndex(month, start, end, 1);
+    }
+
+    public synchronized boolean update(T oldRecord, T newRecord) {
+        YearMonth oldMonth = monthOf(oldRecord);
+        if (oldMonth == null) {
+            return false;
+        }
+        String id = oldRecord.getId();
+        LocalDate start = startOf.apply(newRecord);
+        LocalDate end = endOf.apply(newRecord);
+        requireDates(newRecord, start, end);
+        YearMonth newMonth = YearMonth.from(start);
+        if (newMonth.equals(oldMonth)) {
+            index(oldMonth).replace(id, newRecord);
+            expandIndex(oldMonth, start, end, 0);
+        } else {
+            // Đổi sang tháng khác: chuyển bản ghi sang shard mới, giữ nguyên id
+            index(oldMonth).remove(id);
+            expandIndex(oldMonth, null, null, -1);
+            newRecord.setId(id);
+            add(newRecord, start, end);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(T record) {
+        YearMonth month = monthOf(record);
+        if (month == null) {
+            return false;
+        }
+        index(month).remove(record.getId());
+        expandIndex(month, null, null, -1);
+        return true;
+    }
+
+    // Cả khối được ghi xuống trong một lần ghi nền sau khi áp xong
+    @Override
+    public synchronized boolean applyAll(List<StoreChange<T>> changes) {
+        JsonFileManager.holdWrites();
+        try {
+            return EventStore.super.applyAll(changes);
+        } finally {
+            JsonFileManager.releaseWrites();
+        }
+    }
+
+    @Override
+    public synchronized T findById(String id) {
+        for (YearMonth month : shards.keySet()) {
+            T record = index(month).get(id);
+            if (record != null) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    // Shard chứa bản ghi: thường là tháng của ngày bắt đầu, nếu ngày đã bị sửa thì tìm theo id ở mọi shard
+    private YearMonth monthOf(T record) {
+        YearMonth month = YearMonth.from(startOf.apply(record));
+        if (shards.containsKey(month) && index(month).contains(record.getId())) {
+            return month;
+        }
+        for (YearMonth candidate : shards.keySet()) {
+            if (index(candidate).contains(record.getId())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // Tổng số lần đọc lại của các shard đã mở, không tính lần đọc đầu tiên khi shard được mở
+    @Override
+    public synchronized long reloadCount() {
+        long total = 0;
+        for (IdIndex<T> index : indexes.values()) {
+            total += Math.max(0L, index.manager().getReloadCount() - 1);
+        }
+        return total;
+    }
+
+    // Chỉ stat các shard đã mở, shard chưa mở sẽ được đọc mới khi cần đến
+    @Override
+    public synchronized void refresh() {
+        for (IdIndex<T> index : indexes.values()) {
+            index.records();
+        }
+    }
+
+    @Override
+    public void flush() {
+        for (YearMonth month : shards.keySet()) {
+            shard(month).flush();
+        }
+        indexManager.flush();
+    }
+
+    private List<T> load(YearMonth month) {
+        return index(month).records();
+    }
+
+    private IdIndex<T> index(YearMonth month) {
+        return indexes.computeIfAbsent(month, m -> new IdIndex<>(shard(m), type));
+    }
+
+    private JsonFileManager shard(YearMonth month) {
+        return JsonFileManager.getInstance(directory + "/" + month + ".json");
+    }
+
+    /**
+     * Cập nhật chỉ mục: khoảng ngày chỉ được nới rộng (không thu hẹp khi xóa), vẫn đúng cho truy vấn.
+     * start/end đã được đọc từ bản ghi trước khi ghi shard, null khi xóa.
+     */
+    private void expandIndex(YearMonth month, LocalDate start, LocalDate end, int countDelta) {
+        ShardInfo info = shards.get(month);
+        if (info == null) {
+            info = new ShardInfo();
+            info.setMonth(month.toString());
+            info.setFile(month + ".json");
+            info.setMinStart(start.toString());
+            info.setMaxEnd(end.toString());
+            shards.put(month, info);
+            if (!migrating) {
+                indexManager.addRecord(info);
+            }
+        }
+        info.setCount(info.getCount() + countDelta);
+        if (start != null) {
+            if (start.isBefore(LocalDate.parse(info.getMinStart()))) {
+                info.setMinStart(start.toString());
+            }
+            if (end.isAfter(LocalDate.parse(info.getMaxEnd()))) {
+                info.setMaxEnd(end.toString());
+            }
+        }
+        if (!migrating) {
+            indexManager.saveToFile();
+        }
+    }
+
+    @Data
+    public static class ShardInfo {
+        private String month;
+        private String file;
+        private String minStart;
+        private String maxEnd;
+        private int count;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.calender.config;
+
+/**
+ * Cách lưu dữ liệu của một {@link EventStore}.
+ * JSON: một file JSON duy nhất qua {@link JsonFileManager}.
+ * BINARY: như JSON nhưng ghi kèm snapshot nhị phân để load nhanh hơn.
+ * SHARDED: mỗi tháng một file JSON, xem {@link MonthShardedStore}.
+ * H2: cơ sở dữ liệu H2 nhúng trong data/, có index theo khoảng ngày.
+ */
+public enum StoreBackend {
+    JSON,
+    BINARY,
+    SHARDED,
+    H2;
+
+    public static StoreBackend parse(String value, StoreBackend defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+}
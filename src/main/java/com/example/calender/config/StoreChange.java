@@ -0,0 +1,36 @@
+package com.example.calender.config;
+
+import com.example.calender.models.Identifiable;
+import lombok.Getter;
+
+/**
+ * Một thay đổi trong nhóm gửi cho {@link EventStore#applyAll}, cùng ý nghĩa với upsert/delete:
+ * thêm có {@code previous} null, xóa có {@code record} null, sửa có cả hai.
+ */
+@Getter
+public final class StoreChange<T extends Identifiable> {
+
+    private final T previous;
+    private final T record;
+
+    private StoreChange(T previous, T record) {
+        this.previous = previous;
+        this.record = record;
+    }
+
+    public static <T extends Identifiable> StoreChange<T> insert(T record) {
+        return new StoreChange<>(null, record);
+    }
+
+    public static <T extends Identifiable> StoreChange<T> update(T previous, T record) {
+        return new StoreChange<>(previous, record);
+    }
+
+    public static <T extends Identifiable> StoreChange<T> delete(T previous) {
+        return new StoreChange<>(previous, null);
+    }
+
+    public boolean isDelete() {
+        return record == null;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.calender.config;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * Mô tả một kho dữ liệu: tên file/thư mục/bảng cho từng backend
+ * và cách lấy khoảng ngày của bản ghi.
+ */
+@Getter
+@Builder
+public class StoreSpec<T> {
+    private final Class<T> type;
+    private final Function<T, LocalDate> startOf;
+    private final Function<T, LocalDate> endOf;
+    // File JSON trong data/, cũng là nguồn chuyển đổi lần đầu cho các backend khác
+    private final String jsonFile;
+    // Thư mục shard trong data/, null nếu không hỗ trợ SHARDED
+    private final String shardDirectory;
+    // Tên bảng trong cơ sở dữ liệu
+    private final String table;
+    // Backend dùng khi ClientConfig không chỉ định
+    private final StoreBackend defaultBackend;
+}
@@ -0,0 +1,43 @@
+package com.example.calender.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Từ điển chuỗi riêng cho từng kho dữ liệu: các trường ít giá trị khác nhau
+ * (phòng, màu, trạng thái, giờ...) dùng chung một đối tượng String thay vì mỗi bản ghi một bản sao.
+ * Giới hạn số phần tử để dữ liệu bất thường (giá trị nào cũng khác nhau) không làm từ điển phình mãi.
+ */
+final class StringDictionary {
+
+    private static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private final ConcurrentHashMap<String, String> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    StringDictionary() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    StringDictionary(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = entries.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (entries.size() >= maxEntries) {
+            return value;
+        }
+        existing = entries.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -1,29 +1,47 @@
 package com.example.calender.controller;
 
 import com.example.calender.models.EventSchedule;
+import com.example.calender.models.PeriodUsage;
+import com.example.calender.models.UtilizationReport;
 import com.example.calender.service.CalendarService;
+import com.example.calender.service.DataChange;
+import com.example.calender.service.ReportService;
 import com.example.calender.utils.FormatColor;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Cursor;
-import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class CalendarController implements Initializable {
 
     private final CalendarService calendarService = CalendarService.getInstance();
+    private final ReportService reportService = ReportService.getInstance();
+
+    // Theo thứ tự của UtilizationReport.Granularity
+    private static final List<String> REPORT_GRANULARITIES = Arrays.asList("Theo ngày", "Theo tuần", "Theo tháng");
 
     @FXML
     private Button btn_prevYear;
@@ -44,11 +62,29 @@ public class CalendarController implements Initializable {
 
     private int currentYear;
 
+    // Nội dung tooltip theo id sự kiện, dựng ở lần hover đầu tiên và dùng chung cho mọi ngày của sự kiện
+    private final Map<String, TooltipContent> tooltipCache = new HashMap<>();
+    // Ô ngày của năm đang hiển thị, để khi sự kiện thay đổi chỉ vẽ lại các ngày bị ảnh hưởng
+    private final Map<LocalDate, Label> dayLabels = new HashMap<>();
+    private final Consumer<DataChange<EventSchedule>> eventListener = this::onEventChanged;
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         currentYear = LocalDate.now().getYear();
         refreshYearGrid();
 
+        // Chỉ nghe thay đổi khi màn hình lịch đang hiển thị
+        gp_Year.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) {
+                calendarService.addChangeListener(eventListener);
+            } else {
+                calendarService.removeChangeListener(eventListener);
+            }
+        });
+        if (gp_Year.getScene() != null) {
+            calendarService.addChangeListener(eventListener);
+        }
+
         dp_year.setValue(LocalDate.of(currentYear, 1, 1));
 
         dp_year.valueProperty().addListener((obs, oldVal, newVal) -> {
@@ -81,7 +117,6 @@ public class CalendarController implements Initializable {
                 confirm.showAndWait().ifPresent(res -> {
                     if (res == ButtonType.YES) {
                         calendarService.deleteEvent(event);
-                        refreshCalendarView();
                     }
                 });
             } else {
@@ -93,13 +128,13 @@ public class CalendarController implements Initializable {
             }
         });
 
-        btn_viewReport.setOnAction(e -> {
-            refreshCalendarView();
-        });
+        btn_viewReport.setOnAction(e -> showReport());
     }
 
-    private void renderCalendar(List<EventSchedule> allEvents) {
+    private void renderCalendar() {
+        calendarService.refresh();
         gp_Year.getChildren().clear();
+        dayLabels.clear();
         gp_Year.getColumnConstraints().clear();
         gp_Year.getRowConstraints().clear();
 
@@ -117,7 +152,7 @@ public class CalendarController implements Initializable {
 
         int col = 0, row = 0;
         for (int month = 1; month <= 12; month++) {
-            VBox monthBox = createMonthView(month, allEvents);
+            VBox monthBox = createMonthView(month);
             monthBox.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
 
             gp_Year.add(monthBox, col, row);
@@ -134,7 +169,7 @@ public class CalendarController implements Initializable {
         }
     }
 
-    private VBox createMonthView(int month, List<EventSchedule> allEvents) {
+    private VBox createMonthView(int month) {
         VBox monthBox = new VBox(5);
         monthBox.getStyleClass().add("month-box");
         monthBox.setFillWidth(true);
@@ -178,7 +213,6 @@ public class CalendarController implements Initializable {
                 dayCounter++;
             }
         }
-        highlightScheduledDays(dayGrid, month, currentYear, allEvents);
 
         for (int i = 0; i < 7; i++) {
             ColumnConstraints colConst = new ColumnConstraints();
@@ -207,53 +241,61 @@ public class CalendarController implements Initializable {
         dayNum.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
         dayNum.setAlignment(Pos.CENTER);
 
-        dayNum.setOnMouseEntered(e -> dayNum.setCursor(Cursor.HAND));
-        dayNum.setOnMouseExited(e -> dayNum.setCursor(Cursor.DEFAULT));
 
         LocalDate selectDate = LocalDate.of(yearMonth.getYear(), yearMonth.getMonth(), dayCounter);
-
-        if (calendarService.isDateInEvent(selectDate)) {
-            dayNum.setOpacity(0.4);
-            dayNum.setOnMouseClicked(e -> viewEventDetail(selectDate));
-        } else {
-            dayNum.setOnMouseClicked(e -> createEvent(selectDate));
-        }
+        applyDayState(dayNum, selectDate);
+        dayLabels.put(selectDate, dayNum);
 
         // Tạo tooltip một lần, gán cho dayNum
         Tooltip tooltip = new Tooltip();
         tooltip.getStyleClass().add("tooltip");
         dayNum.setTooltip(tooltip);
 
-        dayNum.setOnMouseMoved(e -> {
-            EventSchedule event = calendarService.getEventsByDate(selectDate);
-            if (event != null && calendarService.isDateInEvent(selectDate)) {
-                GridPane grid = new GridPane();
-                grid.setVgap(0);
-                grid.setHgap(0);
-                grid.setStyle("-fx-grid-lines-visible: true;"); // Có thể bật gridline để debug
+        // Mỗi ô là một ngày nên chỉ cần cập nhật tooltip khi chuột vào ô, không phải mỗi lần di chuột
+        dayNum.setOnMouseEntered(e -> {
+            dayNum.setCursor(Cursor.HAND);
+            EventSchedule event = calendarService.getEventCovering(selectDate);
+            tooltip.setGraphic(event != null ? getTooltipContent(event) : null);
+            tooltip.setText("");
+        });
+        dayNum.setOnMouseExited(e -> {
+            dayNum.setCursor(Cursor.DEFAULT);
+            // Trả lại nội dung dùng chung để ô khác của cùng sự kiện gắn vào được
+            tooltip.setGraphic(null);
+        });
 
-                // Tạo từng ô (label) và set class
-                grid.add(createCellLabel("Tên"), 0, 0);
-                grid.add(createCellLabel(event.getName()), 1, 0);
+        return dayNum;
+    }
 
-                grid.add(createCellLabel("Từ"), 0, 1);
-                grid.add(createCellLabel(event.getStartDate().toString()), 1, 1);
+    private GridPane getTooltipContent(EventSchedule event) {
+        TooltipContent content = tooltipCache.get(event.getId());
+        // Sự kiện đã bị sửa thì dựng lại
+        if (content == null || !content.event.equals(event)) {
+            content = new TooltipContent(event, createTooltipGrid(event));
+            tooltipCache.put(event.getId(), content);
+        }
+        return content.grid;
+    }
 
-                grid.add(createCellLabel("Đến"), 0, 2);
-                grid.add(createCellLabel(event.getEndDate().toString()), 1, 2);
+    private GridPane createTooltipGrid(EventSchedule event) {
+        GridPane grid = new GridPane();
+        grid.setVgap(0);
+        grid.setHgap(0);
+        grid.setStyle("-fx-grid-lines-visible: true;"); // Có thể bật gridline để debug
 
-                grid.add(createCellLabel("Mô tả"), 0, 3);
-                grid.add(createCellLabel(event.getDescription()), 1, 3);
+        // Tạo từng ô (label) và set class
+        grid.add(createCellLabel("Tên"), 0, 0);
+        grid.add(createCellLabel(event.getName()), 1, 0);
 
-                tooltip.setGraphic(grid);
-                tooltip.setText("");
-            } else {
-                tooltip.setGraphic(null);
-                tooltip.setText("");
-            }
-        });
+        grid.add(createCellLabel("Từ"), 0, 1);
+        grid.add(createCellLabel(event.getStartDate().toString()), 1, 1);
 
-        return dayNum;
+        grid.add(createCellLabel("Đến"), 0, 2);
+        grid.add(createCellLabel(event.getEndDate().toString()), 1, 2);
+
+        grid.add(createCellLabel("Mô tả"), 0, 3);
+        grid.add(createCellLabel(event.getDescription()), 1, 3);
+        return grid;
     }
 
     private Label createCellLabel(String text) {
@@ -332,13 +374,92 @@ public class CalendarController implements Initializable {
                 confirm.showAndWait().ifPresent(res -> {
                     if (res == ButtonType.YES) {
                         calendarService.deleteEvent(events);
-                        refreshCalendarView();
                     }
                 });
             }
         });
+    }
 
-        refreshCalendarView();
+    // Báo cáo sử dụng phòng theo kỳ, mặc định cả năm đang xem chia theo tháng
+    private void showReport() {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Báo cáo sử dụng phòng");
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        DatePicker fromPicker = new DatePicker(LocalDate.of(currentYear, 1, 1));
+        DatePicker toPicker = new DatePicker(LocalDate.of(currentYear, 12, 31));
+        ComboBox<String> granularityComboBox = new ComboBox<>(FXCollections.observableArrayList(REPORT_GRANULARITIES));
+        granularityComboBox.getSelectionModel().select(UtilizationReport.Granularity.MONTH.ordinal());
+        Button viewButton = new Button("Xem");
+        Button exportButton = new Button("Xuất CSV");
+        Label summaryLabel = new Label();
+
+        TableView<PeriodUsage> table = new TableView<>();
+        table.getColumns().add(reportColumn("Kỳ", period -> period.getPeriodStart() + " - " + period.getPeriodEnd()));
+        table.getColumns().add(reportColumn("Giờ đã đặt", period -> formatHours(period.getBookedMinutes())));
+        table.getColumns().add(reportColumn("Lượt đặt", period -> String.valueOf(period.getBookings())));
+        table.getColumns().add(reportColumn("Cao điểm", period -> String.valueOf(period.getPeakConcurrent())));
+        table.getColumns().add(reportColumn("Tỉ lệ sử dụng",
+                period -> String.format("%.1f%%", period.getOccupancyRate() * 100)));
+        table.getColumns().add(reportColumn("Approved (giờ)", period -> formatHours(period.getApprovedMinutes())));
+        table.getColumns().add(reportColumn("Pending (giờ)", period -> formatHours(period.getPendingMinutes())));
+        table.getColumns().add(reportColumn("Rejected (giờ)", period -> formatHours(period.getRejectedMinutes())));
+        table.setPrefSize(820, 420);
+
+        UtilizationReport[] current = new UtilizationReport[1];
+        Runnable runReport = () -> {
+            LocalDate from = fromPicker.getValue();
+            LocalDate to = toPicker.getValue();
+            if (from == null || to == null || to.isBefore(from)) {
+                new Alert(Alert.AlertType.WARNING, "Khoảng ngày không hợp lệ.").showAndWait();
+                return;
+            }
+            long started = System.nanoTime();
+            current[0] = reportService.report(from, to,
+                    UtilizationReport.Granularity.values()[granularityComboBox.getSelectionModel().getSelectedIndex()]);
+            table.setItems(FXCollections.observableArrayList(current[0].getPeriods()));
+            summaryLabel.setText(current[0].getRoomCount() + " phòng, "
+                    + (System.nanoTime() - started) / 1_000_000 + " ms");
+        };
+        viewButton.setOnAction(e -> runReport.run());
+        exportButton.setOnAction(e -> {
+            if (current[0] == null) {
+                return;
+            }
+            FileChooser chooser = new FileChooser();
+            chooser.setInitialFileName("bao-cao-" + current[0].getFrom() + "-" + current[0].getTo() + ".csv");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+            File file = chooser.showSaveDialog(dialog.getDialogPane().getScene().getWindow());
+            if (file == null) {
+                return;
+            }
+            try {
+                ReportService.exportCsv(current[0], file.toPath());
+            } catch (IOException ex) {
+                new Alert(Alert.AlertType.ERROR, "Không ghi được file: " + ex.getMessage()).showAndWait();
+            }
+        });
+
+        HBox controls = new HBox(8, new Label("Từ:"), fromPicker, new Label("Đến:"), toPicker,
+                granularityComboBox, viewButton, exportButton);
+        controls.setAlignment(Pos.CENTER_LEFT);
+        VBox content = new VBox(8, controls, table, summaryLabel);
+        content.setPadding(new Insets(10));
+        dialog.getDialogPane().setContent(content);
+
+        runReport.run();
+        dialog.showAndWait();
+    }
+
+    private static TableColumn<PeriodUsage, String> reportColumn(String title, Function<PeriodUsage, String> value) {
+        TableColumn<PeriodUsage, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cellData -> new SimpleStringProperty(value.apply(cellData.getValue())));
+        column.setSortable(false);
+        return column;
+    }
+
+    private static String formatHours(long minutes) {
+        return String.format("%.1f", minutes / 60.0);
     }
 
     private void createEvent(LocalDate selectDate) {
@@ -381,8 +502,6 @@ public class CalendarController implements Initializable {
                         .build();
 
                 calendarService.addEvent(event);
-
-                refreshCalendarView();
             }
         });
     }
@@ -435,9 +554,8 @@ public class CalendarController implements Initializable {
     }
 
     private void refreshCalendarView() {
-        List<EventSchedule> allEvents = calendarService.getAllEvents();
         gp_Year.getChildren().clear();
-        renderCalendar(allEvents);
+        renderCalendar();
     }
 
     private void navigateYear(int offset) {
@@ -446,9 +564,8 @@ public class CalendarController implements Initializable {
 
     private void refreshYearGrid() {
         // Logic to refresh the year grid based on the currentYear
-        List<EventSchedule> allEvents = calendarService.getAllEvents();
         gp_Year.getChildren().clear();
-        renderCalendar(allEvents);
+        renderCalendar();
         highLightStartDate(dp_year);
     }
 
@@ -501,30 +618,66 @@ public class CalendarController implements Initializable {
     }
 
 
-    private void highlightScheduledDays(GridPane dayGrid, int month, int year, List<EventSchedule> allEvents) {
-        for (Node node : dayGrid.getChildren()) {
-            if (node instanceof Label) {
-                Label dayLabel = (Label) node;
-                try {
-                    int dayValue = Integer.parseInt(dayLabel.getText());
-                    LocalDate thisDate = LocalDate.of(year, month, dayValue);
-
-                    for (EventSchedule event : allEvents) {
-                        if (!thisDate.isBefore(event.getStartDate()) && !thisDate.isAfter(event.getEndDate())) {
-                            String color = event.getColor() != null ? event.getColor() : "#a0e7a0";
-                            boolean isDark = FormatColor.isDarkColor(color);
+    // Tô màu và gán thao tác click cho ô ngày theo sự kiện đang phủ ngày đó
+    private void applyDayState(Label dayLabel, LocalDate date) {
+        // Tra theo ngày trong năm thay vì duyệt lại toàn bộ sự kiện cho mỗi ô
+        EventSchedule event = calendarService.getEventCovering(date);
+        if (event != null) {
+            String color = event.getColor() != null ? event.getColor() : "#a0e7a0";
+            boolean isDark = FormatColor.isDarkColor(color);
+
+            dayLabel.setStyle(
+                    "-fx-background-color: " + color + ";" +
+                            "-fx-border-color: #333;" +
+                            "-fx-text-fill: " + (isDark ? "white" : "black") + ";");
+            dayLabel.setOpacity(0.4);
+            dayLabel.setOnMouseClicked(e -> viewEventDetail(date));
+        } else {
+            dayLabel.setStyle("");
+            dayLabel.setOpacity(1.0);
+            dayLabel.setOnMouseClicked(e -> createEvent(date));
+        }
+    }
 
-                            dayLabel.setStyle(
-                                    "-fx-background-color: " + color + ";" +
-                                            "-fx-border-color: #333;" +
-                                            "-fx-text-fill: " + (isDark ? "white" : "black") + ";");
-                            break;
-                        }
-                    }
+    private void onEventChanged(DataChange<EventSchedule> change) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> onEventChanged(change));
+            return;
+        }
+        tooltipCache.remove(change.getId());
+        if (change.getPrevious() != null) {
+            refreshDayLabels(change.getPrevious().getStartDate(), change.getPrevious().getEndDate());
+        }
+        if (change.getCurrent() != null) {
+            refreshDayLabels(change.getCurrent().getStartDate(), change.getCurrent().getEndDate());
+        }
+    }
 
-                } catch (NumberFormatException ignored) {
-                }
+    // Chỉ vẽ lại các ô trong [from, to] thuộc năm đang hiển thị
+    private void refreshDayLabels(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            refreshCalendarView();
+            return;
+        }
+        LocalDate yearStart = LocalDate.of(currentYear, 1, 1);
+        LocalDate yearEnd = LocalDate.of(currentYear, 12, 31);
+        LocalDate start = from.isBefore(yearStart) ? yearStart : from;
+        LocalDate end = to.isAfter(yearEnd) ? yearEnd : to;
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            Label dayLabel = dayLabels.get(day);
+            if (dayLabel != null) {
+                applyDayState(dayLabel, day);
             }
         }
     }
+
+    private static final class TooltipContent {
+        final EventSchedule event;
+        final GridPane grid;
+
+        TooltipContent(EventSchedule event, GridPane grid) {
+            this.event = event;
+            this.grid = grid;
+        }
+    }
 }
@@ -2,16 +2,24 @@ package com.example.calender.controller;
 
 import com.example.calender.config.ViewLoader;
 import com.example.calender.controller.timeLine.*;
+import com.example.calender.models.SearchHit;
+import com.example.calender.service.SearchService;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.geometry.Side;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.control.DatePicker;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.BorderPane;
 
 import java.net.URL;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.ResourceBundle;
 
 public class TimeDateLineController extends ActionHandler implements Initializable {
@@ -22,6 +30,8 @@ public class TimeDateLineController extends ActionHandler implements Initializab
     private Button btn_prev, btn_delete, btn_add, btn_update, btn_next, btn_day, btn_week, btn_month;
     @FXML
     private BorderPane bp_mainLayout;
+    @FXML
+    private TextField tf_search;
 
     private final MonthViewController monthViewController = new MonthViewController();
     private final WeekViewController weekViewController = new WeekViewController();
@@ -29,6 +39,9 @@ public class TimeDateLineController extends ActionHandler implements Initializab
     private boolean isControllerSet = false;
     private final static String TIMELINE = "/com/example/calender/timeLine/body_view.fxml";
     private LocalDate timelineStartDate = LocalDate.now();
+    private final SearchService searchService = SearchService.getInstance();
+    private final ContextMenu searchResults = new ContextMenu();
+    private Task<List<SearchHit>> searchTask;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -62,6 +75,8 @@ public class TimeDateLineController extends ActionHandler implements Initializab
             viewEventDetail(today);
         });
 
+        tf_search.setOnAction(e -> search(tf_search.getText()));
+
         dpk_date.valueProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal != null && !newVal.equals(timelineStartDate)) {
                 LocalDate newStartDate;
@@ -131,6 +146,52 @@ public class TimeDateLineController extends ActionHandler implements Initializab
         bp_mainLayout.setCenter(loadedController.getRootNode());
     }
 
+    /**
+     * Tìm theo ô tìm kiếm và hiện kết quả ngay dưới ô, chọn một kết quả thì nhảy tới ngày của nó.
+     * Tìm trên luồng nền vì lần đầu phải dựng chỉ mục.
+     */
+    private void search(String query) {
+        if (searchTask != null) {
+            searchTask.cancel();
+        }
+        if (query == null || query.trim().isEmpty()) {
+            searchResults.hide();
+            return;
+        }
+        Task<List<SearchHit>> task = new Task<List<SearchHit>>() {
+            @Override
+            protected List<SearchHit> call() {
+                return searchService.search(query);
+            }
+        };
+        task.setOnSucceeded(e -> showSearchResults(query.trim(), task.getValue()));
+        task.setOnFailed(e -> task.getException().printStackTrace());
+        searchTask = task;
+        Thread thread = new Thread(task, "search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void showSearchResults(String query, List<SearchHit> hits) {
+        searchResults.getItems().clear();
+        if (hits.isEmpty()) {
+            MenuItem empty = new MenuItem("Không tìm thấy kết quả cho \"" + query + "\"");
+            empty.setDisable(true);
+            searchResults.getItems().add(empty);
+        }
+        for (SearchHit hit : hits) {
+            String detail = hit.getDetail() == null || hit.getDetail().isEmpty() ? "" : " (" + hit.getDetail() + ")";
+            MenuItem item = new MenuItem(hit.getDate() + "  " + hit.getTitle() + detail);
+            item.setOnAction(e -> {
+                if (hit.getDate() != null) {
+                    dpk_date.setValue(hit.getDate());
+                }
+            });
+            searchResults.getItems().add(item);
+        }
+        searchResults.show(tf_search, Side.BOTTOM, 0, 0);
+    }
+
     // --- Date Navigation ---
     private void navigateDate(int days) {
         dpk_date.setValue(dpk_date.getValue().plusDays(days));
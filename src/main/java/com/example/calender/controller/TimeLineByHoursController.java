@@ -80,6 +80,7 @@ public class TimeLineByHoursController implements Initializable {
     }
 
     private void loadEvents() {
+        timeLineByHoursService.refresh();
         eventsList.setAll(timeLineByHoursService.getEventsByNextThreeDays(timelineStartDate));
     }
 
@@ -542,7 +543,7 @@ public class TimeLineByHoursController implements Initializable {
             Events event = eventsList.get(i);
             LocalDate eventDate;
             try {
-                eventDate = LocalDate.parse(event.getDate());
+                eventDate = event.getDay();
             } catch (Exception e) {
                 System.err.println("Invalid date format for event: " + event.getName());
                 continue; // Bỏ qua sự kiện có ngày không hợp lệ
@@ -552,11 +553,8 @@ public class TimeLineByHoursController implements Initializable {
             if (dayOffset < 0 || dayOffset >= DAYS_VISIBLE)
                 continue;
 
-            LocalTime startTime = LocalTime.parse(event.getStartHour());
-            LocalTime endTime = LocalTime.parse(event.getEndHour());
-
-            double startMinutes = startTime.getHour() * 60 + startTime.getMinute();
-            double endMinutes = endTime.getHour() * 60 + endTime.getMinute();
+            double startMinutes = event.getStartMinuteOfDay();
+            double endMinutes = event.getEndMinuteOfDay();
 
             double x = (dayOffset * HOURS_PER_DAY * 60 + startMinutes) / MINUTES_PER_PIXEL;
             double width = (endMinutes - startMinutes) / MINUTES_PER_PIXEL;
@@ -626,7 +624,7 @@ public class TimeLineByHoursController implements Initializable {
                 }
                 e.consume();
             } else if (e.getButton() == MouseButton.SECONDARY) {
-                LocalDate eventDate = LocalDate.parse(event.getDate());
+                LocalDate eventDate = event.getDay();
                 viewEventDetail(eventDate);
             }
         });
@@ -1,6 +1,9 @@
 package com.example.calender.controller.timeLine;
 
 import com.example.calender.models.BookRoom;
+import com.example.calender.models.FreeSlot;
+import com.example.calender.models.RecurrenceRule;
+import com.example.calender.service.BookingTable;
 import com.example.calender.service.TimeLineByDayService;
 import com.example.calender.utils.FormatColor;
 import com.vvg.pos.api.HotelClient;
@@ -24,7 +27,6 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -33,9 +35,19 @@ import java.util.stream.Collectors;
 public abstract class ActionHandler {
 
     protected static final int HOURS_PER_DAY = 24;
+    protected static final int MINUTES_PER_DAY = HOURS_PER_DAY * 60;
     protected static final double CELL_WIDTH = 200.0;
     protected static double ROW_HEIGHT = 29.0;
     private static final String HOVER_EVENT_COLOR = "#AA66CC";
+    // Số khoảng trống gợi ý khi bị trùng lịch và phạm vi tìm quanh thời điểm đã chọn
+    private static final int SUGGESTION_LIMIT = 3;
+    private static final int SUGGESTION_DAYS_BEFORE = 1;
+    private static final int SUGGESTION_DAYS_AFTER = 7;
+    private static final DateTimeFormatter SUGGESTION_FORMAT = DateTimeFormatter.ofPattern("dd/MM HH:mm");
+    private static final List<String> REPEAT_OPTIONS = Arrays.asList(
+            "Không lặp", "Hằng ngày", "Hằng tuần", "Hằng tháng");
+    private static final RecurrenceRule.Frequency[] REPEAT_FREQUENCIES = {
+            RecurrenceRule.Frequency.DAILY, RecurrenceRule.Frequency.WEEKLY, RecurrenceRule.Frequency.MONTHLY};
     protected final ObservableList<BookRoom> eventsList = FXCollections.observableArrayList();
     protected final ObservableList<Room> roomList = FXCollections.observableArrayList();
     protected LocalDate timelineStartDate = LocalDate.now();
@@ -46,11 +58,54 @@ public abstract class ActionHandler {
     private final TimeLineByDayService timeLineByDayService = TimeLineByDayService.getInstance();
     protected abstract void refreshTimelineView();
 
+    // Chỉ lấy các lượt đặt giao với khoảng ngày đang hiển thị
     protected void loadEvents() {
-        eventsList.setAll(timeLineByDayService.getAllEvents());
+        timeLineByDayService.refresh();
+        eventsList.setAll(timeLineByDayService.getEventsInRange(getVisibleStartDate(), getVisibleEndDate()));
         setupLoadData();
     }
 
+    // Khoảng ngày view đang hiển thị, mặc định chỉ một ngày timelineStartDate
+    protected LocalDate getVisibleStartDate() {
+        return timelineStartDate;
+    }
+
+    protected LocalDate getVisibleEndDate() {
+        return timelineStartDate;
+    }
+
+    protected BookingTable getBookingTable() {
+        return timeLineByDayService.getBookingTable(getVisibleStartDate(), getVisibleEndDate());
+    }
+
+    // Các lần diễn ra của chuỗi lặp trong khoảng ngày đang hiển thị, không nằm trong BookingTable
+    protected List<BookRoom> visibleOccurrences() {
+        return timeLineByDayService.getOccurrencesInRange(getVisibleStartDate(), getVisibleEndDate());
+    }
+
+    protected List<BookRoom> expandRecurrence(BookRoom series) {
+        return timeLineByDayService.expandRecurrence(series, getVisibleStartDate(), getVisibleEndDate());
+    }
+
+    // Con trỏ trên các lượt đặt giao với khoảng ngày đang hiển thị
+    protected BookingTable.Cursor visibleBookings(BookingTable table) {
+        return table.cursor(getVisibleStartDate().toEpochDay() * MINUTES_PER_DAY,
+                (getVisibleEndDate().toEpochDay() + 1) * MINUTES_PER_DAY);
+    }
+
+    // Dòng trên bảng theo mã phòng của BookingTable, -1 nếu phòng không hiển thị
+    protected int[] roomRowsByCode(BookingTable table) {
+        int[] rows = new int[table.roomCount()];
+        Arrays.fill(rows, -1);
+        for (int i = 0; i < roomList.size(); i++) {
+            int code = table.roomCode(roomList.get(i).getRoomNumber());
+            if (code >= 0) {
+                rows[code] = i;
+            }
+        }
+        return rows;
+    }
+
     public void setupLoadData() {
         loadDataService = new Service<Void>() {
             @Override
@@ -285,10 +340,9 @@ public abstract class ActionHandler {
                         .build();
 
                 if (isValidTime(updatedEvent)) {
-                    // Cập nhật qua service
+                    // Cập nhật qua service, view đang mở tự vá pane qua listener thay đổi
                     timeLineByDayService.updateEvent(selectedEvent, updatedEvent);
                 }
-                refreshTimelineView();
             }
 
             if (response == deleteButton) {
@@ -300,7 +354,6 @@ public abstract class ActionHandler {
                 confirm.showAndWait().ifPresent(confirmResult -> {
                     if (confirmResult == ButtonType.OK) {
                         timeLineByDayService.deleteEvent(selectedEvent);
-                        refreshTimelineView();
                     }
                 });
             }
@@ -342,10 +395,20 @@ public abstract class ActionHandler {
             spinner.setEditable(true);
         });
 
+        // Lặp lại: chỉ số trong REPEAT_OPTIONS, số lần tính cả lần đầu
+        ComboBox<String> repeatComboBox = new ComboBox<>(FXCollections.observableArrayList(REPEAT_OPTIONS));
+        repeatComboBox.getSelectionModel().selectFirst();
+        Spinner<Integer> repeatCountSpinner = new Spinner<>(2, 366, 10);
+        repeatCountSpinner.setPrefWidth(80);
+        repeatCountSpinner.disableProperty()
+                .bind(repeatComboBox.getSelectionModel().selectedIndexProperty().isEqualTo(0));
+
         // Layout
         GridPane grid = setupEventForm(nameField, emailField, phoneField, purposeArea, roomComboBox, statusComboBox,
                 startDatePicker, endDatePicker, colorPicker, startHourSpinner, startMinuteSpinner, endHourSpinner,
                 endMinuteSpinner);
+        grid.addRow(10, new Label("Lặp lại:"),
+                new HBox(5, repeatComboBox, new Label("Số lần:"), repeatCountSpinner));
 
         dialog.getDialogPane().setContent(grid);
 
@@ -418,18 +481,27 @@ public abstract class ActionHandler {
                         .purpose(purposeArea.getText())
                         .color(FormatColor.toHexString(colorPicker.getValue()))
                         .status(statusComboBox.getValue())
+                        .recurrence(repeatRule(repeatComboBox.getSelectionModel().getSelectedIndex(),
+                                repeatCountSpinner.getValue()))
                         .build();
 
                 if (isValidTime(newEvent)) {
                     timeLineByDayService.addEvent(newEvent);
                 }
-                refreshTimelineView();
 
                 new Alert(Alert.AlertType.INFORMATION, "Sự kiện mới đã được thêm vào!").showAndWait();
             }
         });
     }
 
+    // Quy tắc lặp theo lựa chọn trong form, null nếu không lặp
+    private static String repeatRule(int option, int count) {
+        if (option <= 0) {
+            return null;
+        }
+        return new RecurrenceRule(REPEAT_FREQUENCIES[option - 1], 1, count, null, new TreeSet<>()).format();
+    }
+
     private GridPane setupEventForm(TextField nameField, TextField emailField, TextField phoneField,
             TextArea purposeArea, ComboBox<String> roomComboBox, ComboBox<String> statusComboBox,
             DatePicker startDatePicker, DatePicker endDatePicker, ColorPicker colorPicker,
@@ -501,7 +573,7 @@ public abstract class ActionHandler {
                 }
                 e.consume();
             } else if (e.getButton() == MouseButton.SECONDARY) {
-                viewEventDetail(LocalDate.parse(event.getStartDate()));
+                viewEventDetail(event.getStartDay());
             }
         });
 
@@ -599,8 +671,14 @@ public abstract class ActionHandler {
 
         if (isValidTime(updatedEvent)) {
             timeLineByDayService.updateEvent(event, updatedEvent);
+        } else {
+            // Không hợp lệ: đưa pane vừa kéo về đúng vị trí của lượt đặt
+            redrawBooking(event);
         }
-        refreshTimelineView();
+    }
+
+    // Vẽ lại pane của một lượt đặt, view có pane ghi đè
+    protected void redrawBooking(BookRoom event) {
     }
 
     // ======================
@@ -627,35 +705,55 @@ public abstract class ActionHandler {
     // Event Validation
     // ======================
     protected boolean isValidTime(BookRoom event) {
-        LocalDateTime newStartDateTime = LocalDateTime.of(LocalDate.parse(event.getStartDate()),
-                LocalTime.parse(event.getStartTime()));
-        LocalDateTime newEndDateTime = LocalDateTime.of(LocalDate.parse(event.getEndDate()),
-                LocalTime.parse(event.getEndTime()));
-
-        List<BookRoom> overlappingEvents = timeLineByDayService.getAllEventsByRoomName(event.getRoomName());
+        // So sánh theo số phút đã parse sẵn trong model, không tạo LocalDateTime cho từng sự kiện
+        long newStart = event.getStartEpochMinute();
+        long newEnd = event.getEndEpochMinute();
+
+        // Phòng trống hẳn trên bitmap thì không cần xét từng lượt đặt
+        if (!event.isRecurring() && timeLineByDayService.isRoomFree(event.getRoomName(), newStart, newEnd))
+            return true;
+
+        // Chỉ lấy các lượt đặt chồng lấn qua cây khoảng của phòng thay vì duyệt mọi lượt đặt,
+        // chuỗi lặp thì xét từng lần diễn ra
+        List<BookRoom> overlappingEvents = event.isRecurring()
+                ? timeLineByDayService.findSeriesOverlapping(event)
+                : timeLineByDayService.findOverlapping(event.getRoomName(), newStart, newEnd);
         for (BookRoom existingEvent : overlappingEvents) {
             if (Objects.equals(existingEvent.getEmail(), event.getEmail()))
                 continue;
 
-            LocalDateTime existingStartDateTime = LocalDateTime.of(
-                    LocalDate.parse(existingEvent.getStartDate()),
-                    LocalTime.parse(existingEvent.getStartTime()));
-            LocalDateTime existingEndDateTime = LocalDateTime.of(
-                    LocalDate.parse(existingEvent.getEndDate()),
-                    LocalTime.parse(existingEvent.getEndTime()));
-
-            if (newStartDateTime.isBefore(existingEndDateTime) && existingStartDateTime.isBefore(newEndDateTime)) {
-                Alert alert = new Alert(Alert.AlertType.WARNING);
-                alert.setTitle("Lỗi trùng lặp sự kiện");
-                alert.setHeaderText(null);
-                alert.setContentText("Sự kiện này đã tồn tại trong khoảng thời gian đã chọn.");
-                alert.showAndWait();
-                return false;
-            }
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("Lỗi trùng lặp sự kiện");
+            alert.setHeaderText(null);
+            alert.setContentText("Sự kiện này đã tồn tại trong khoảng thời gian đã chọn."
+                    + suggestFreeSlots(newStart, newEnd));
+            alert.showAndWait();
+            return false;
         }
         return true;
     }
 
+    // Các khoảng trống cùng độ dài gần thời điểm đã chọn nhất, trên mọi phòng đang hiển thị
+    private String suggestFreeSlots(long start, long end) {
+        List<String> roomNames = roomList.stream()
+                .map(Room::getRoomNumber)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        List<FreeSlot> slots = timeLineByDayService.findFreeSlots((int) (end - start),
+                start - SUGGESTION_DAYS_BEFORE * MINUTES_PER_DAY, end + SUGGESTION_DAYS_AFTER * MINUTES_PER_DAY,
+                roomNames, SUGGESTION_LIMIT, start);
+        if (slots.isEmpty()) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder("\nCó thể chọn:");
+        for (FreeSlot slot : slots) {
+            text.append("\n- Phòng ").append(slot.getRoomName()).append(": ")
+                    .append(slot.getStart().format(SUGGESTION_FORMAT)).append(" - ")
+                    .append(slot.getEnd().format(SUGGESTION_FORMAT));
+        }
+        return text.toString();
+    }
+
     // ======================
     // Pane Alignment with Table Header
     // ======================
@@ -1,7 +1,13 @@
 package com.example.calender.controller.timeLine;
 
+import com.example.calender.models.BookRoom;
+import com.example.calender.models.RecurrenceRule;
+import com.example.calender.service.BookingTable;
+import com.example.calender.service.DataChange;
+import com.example.calender.service.TimeLineByDayService;
 import com.vvg.pos.bean.Room;
 import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
@@ -16,7 +22,12 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public abstract class BaseTimeLineController extends ActionHandler {
 
@@ -37,6 +48,10 @@ public abstract class BaseTimeLineController extends ActionHandler {
     @Getter
     protected Node rootNode;
 
+    // Pane đang vẽ theo id lượt đặt, để khi có thay đổi chỉ vá đúng pane đó
+    private final Map<String, Pane> panesById = new HashMap<>();
+    private final Consumer<DataChange<BookRoom>> bookingListener = this::onBookingChanged;
+
     public void setTimelineStartDate(LocalDate date) {
         this.timelineStartDate = date;
         PauseTransition pause = new PauseTransition(Duration.millis(50));
@@ -58,6 +73,124 @@ public abstract class BaseTimeLineController extends ActionHandler {
     protected void setupTables() {
         setupNameTable();
         setupTimelineColumns();
+        watchBookingChanges();
+    }
+
+    // Chỉ nghe thay đổi khi overlay đang nằm trên màn hình, view bị thay ra thì hủy đăng ký
+    private void watchBookingChanges() {
+        TimeLineByDayService service = TimeLineByDayService.getInstance();
+        ap_overlay.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) {
+                service.addChangeListener(bookingListener);
+            } else {
+                service.removeChangeListener(bookingListener);
+            }
+        });
+        if (ap_overlay.getScene() != null) {
+            service.addChangeListener(bookingListener);
+        }
+    }
+
+    private void onBookingChanged(DataChange<BookRoom> change) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> onBookingChanged(change));
+            return;
+        }
+        if (change.getPrevious() != null) {
+            if (change.getPrevious().isRecurring()) {
+                removeSeriesPanes(change.getId());
+            } else {
+                removeBookingPane(change.getId());
+            }
+        }
+        BookRoom current = change.getCurrent();
+        if (current != null) {
+            if (current.isRecurring()) {
+                // Chuỗi lặp: vẽ các lần diễn ra trong khoảng đang hiển thị
+                for (BookRoom occurrence : expandRecurrence(current)) {
+                    placeBookingPane(occurrence);
+                }
+            } else {
+                placeBookingPane(current);
+            }
+        }
+    }
+
+    private void removeSeriesPanes(String seriesId) {
+        List<String> ids = new ArrayList<>();
+        for (String id : panesById.keySet()) {
+            if (seriesId.equals(RecurrenceRule.seriesIdOf(id))) {
+                ids.add(id);
+            }
+        }
+        ids.forEach(this::removeBookingPane);
+        eventsList.removeIf(bookRoom -> seriesId.equals(RecurrenceRule.seriesIdOf(bookRoom.getId())));
+    }
+
+    @Override
+    protected void redrawBooking(BookRoom event) {
+        removeBookingPane(event.getId());
+        placeBookingPane(event);
+    }
+
+    private void removeBookingPane(String id) {
+        eventsList.removeIf(bookRoom -> id.equals(bookRoom.getId()));
+        Pane pane = panesById.remove(id);
+        if (pane != null) {
+            ap_overlay.getChildren().remove(pane);
+        }
+    }
+
+    // Vẽ một lượt đặt nếu nó giao với khoảng đang hiển thị và phòng có trên bảng
+    private void placeBookingPane(BookRoom bookRoom) {
+        long start = bookRoom.getStartEpochMinute();
+        long end = bookRoom.getEndEpochMinute();
+        if (start >= (getVisibleEndDate().toEpochDay() + 1) * MINUTES_PER_DAY
+                || end <= getVisibleStartDate().toEpochDay() * MINUTES_PER_DAY) {
+            return;
+        }
+        eventsList.add(bookRoom);
+        drawBookingPane(bookRoom);
+    }
+
+    private void drawBookingPane(BookRoom bookRoom) {
+        int roomIndex = -1;
+        for (int i = 0; i < roomList.size(); i++) {
+            String roomNumber = roomList.get(i).getRoomNumber();
+            if (roomNumber != null && roomNumber.equals(bookRoom.getRoomName())) {
+                roomIndex = i;
+                break;
+            }
+        }
+        double[] bounds = new double[2];
+        if (roomIndex >= 0 && placeBooking(bookRoom.getStartEpochMinute(), bookRoom.getEndEpochMinute(), bounds)) {
+            addBookingPane(bookRoom, bounds[0], roomIndex * ROW_HEIGHT, bounds[1]);
+        }
+    }
+
+    // Vẽ toàn bộ lượt đặt đang hiển thị từ bảng theo cột
+    protected void drawBookings() {
+        ap_overlay.getChildren().clear();
+        panesById.clear();
+        BookingTable table = getBookingTable();
+        int[] roomRows = roomRowsByCode(table);
+        double[] bounds = new double[2];
+        for (BookingTable.Cursor booking = visibleBookings(table); booking.next(); ) {
+            int roomIndex = roomRows[booking.room()];
+            if (roomIndex < 0 || !placeBooking(booking.start(), booking.end(), bounds))
+                continue;
+            addBookingPane(booking.record(), bounds[0], roomIndex * ROW_HEIGHT, bounds[1]);
+        }
+        for (BookRoom occurrence : visibleOccurrences()) {
+            drawBookingPane(occurrence);
+        }
+    }
+
+    private void addBookingPane(BookRoom event, double x, double y, double width) {
+        Pane eventPane = createEventPane(event, x, y, width);
+        setupEventPaneInteractions(eventPane, event, ap_overlay);
+        ap_overlay.getChildren().add(eventPane);
+        panesById.put(event.getId(), eventPane);
     }
 
     private void setupNameTable() {
@@ -109,4 +242,10 @@ public abstract class BaseTimeLineController extends ActionHandler {
     public abstract void setupTimelineColumns();
 
     public abstract void drawEvents();
+
+    /**
+     * Vị trí ngang của lượt đặt [start, end) epoch-minute trên overlay của view:
+     * ghi x vào bounds[0], độ rộng vào bounds[1]; trả về false nếu view không vẽ lượt đặt này.
+     */
+    protected abstract boolean placeBooking(long start, long end, double[] bounds);
 }
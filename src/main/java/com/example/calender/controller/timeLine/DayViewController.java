@@ -1,21 +1,14 @@
 package com.example.calender.controller.timeLine;
 
-import com.example.calender.models.BookRoom;
 import com.vvg.pos.bean.Room;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.fxml.Initializable;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
-import javafx.scene.layout.Pane;
 import javafx.util.Duration;
 
 import java.net.URL;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.ResourceBundle;
 
 public class DayViewController extends BaseTimeLineController implements Initializable {
@@ -67,59 +60,30 @@ public class DayViewController extends BaseTimeLineController implements Initial
 
     @Override
     public void drawEvents() {
-        ap_overlay.getChildren().clear();
         TableRow<?> row = (TableRow<?>) tbl_timeline.lookup(".table-row-cell");
         ROW_HEIGHT = row.getHeight();
         updateOverlayHeight(tbl_eventName, ap_overlay);
+        drawBookings();
+    }
 
-        Map<String, Integer> roomIndexMap = new HashMap<>();
-        for (int i = 0; i < roomList.size(); i++) {
-            roomIndexMap.put(roomList.get(i).getRoomNumber(), i);
-        }
-
-        for (BookRoom event : eventsList) {
-            try {
-                Integer roomIndex = roomIndexMap.get(event.getRoomName());
-                if (roomIndex == null)
-                    continue;
-
-                LocalDateTime startDateTime = LocalDateTime.of(LocalDate.parse(event.getStartDate()),
-                        LocalTime.parse(event.getStartTime()));
-                LocalDateTime endDateTime = LocalDateTime.of(LocalDate.parse(event.getEndDate()),
-                        LocalTime.parse(event.getEndTime()));
-
-                // Chỉ hiển thị event trong ngày được chọn
-                if (!startDateTime.toLocalDate().equals(timelineStartDate) &&
-                        !endDateTime.toLocalDate().equals(timelineStartDate) &&
-                        !(startDateTime.toLocalDate().isBefore(timelineStartDate) &&
-                                endDateTime.toLocalDate().isAfter(timelineStartDate))) {
-                    continue;
-                }
-
-                // Tính toán thời gian bắt đầu và kết thúc trong ngày
-                LocalTime eventStartTime = startDateTime.toLocalDate().equals(timelineStartDate)
-                        ? startDateTime.toLocalTime()
-                        : LocalTime.of(0, 0);
-
-                LocalTime eventEndTime = endDateTime.toLocalDate().equals(timelineStartDate)
-                        ? endDateTime.toLocalTime()
-                        : LocalTime.of(23, 59);
-
-                double startMinutes = eventStartTime.getHour() * 60 + eventStartTime.getMinute();
-                double endMinutes = eventEndTime.getHour() * 60 + eventEndTime.getMinute();
-
-                double x = (startMinutes / (HOURS_PER_DAY * 60)) * (CELL_WIDTH * HOURS_PER_DAY);
-                double width = ((endMinutes - startMinutes) / (HOURS_PER_DAY * 60)) * (CELL_WIDTH * HOURS_PER_DAY);
-                double y = roomIndex * ROW_HEIGHT;
-
-                Pane eventPane = createEventPane(event, x, y, width);
-                setupEventPaneInteractions(eventPane, event, ap_overlay);
-                ap_overlay.getChildren().add(eventPane);
-
-            } catch (Exception e) {
-                System.err.println("Invalid date/time format for event: " + event.getFullName());
-                e.printStackTrace();
-            }
-        }
+    @Override
+    protected boolean placeBooking(long start, long end, double[] bounds) {
+        long dayStart = timelineStartDate.toEpochDay() * MINUTES_PER_DAY;
+        long dayEnd = dayStart + MINUTES_PER_DAY;
+        if (start >= dayEnd || end <= dayStart)
+            return false;
+
+        // Tính toán thời gian bắt đầu và kết thúc trong ngày
+        double startMinutes = start >= dayStart
+                ? start - dayStart
+                : 0;
+
+        double endMinutes = end < dayEnd
+                ? end - dayStart
+                : 23 * 60 + 59;
+
+        bounds[0] = (startMinutes / MINUTES_PER_DAY) * (CELL_WIDTH * HOURS_PER_DAY);
+        bounds[1] = ((endMinutes - startMinutes) / MINUTES_PER_DAY) * (CELL_WIDTH * HOURS_PER_DAY);
+        return true;
     }
 }
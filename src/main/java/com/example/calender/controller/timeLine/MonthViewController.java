@@ -1,6 +1,5 @@
 package com.example.calender.controller.timeLine;
 
-import com.example.calender.models.BookRoom;
 import com.vvg.pos.bean.Room;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
@@ -8,17 +7,11 @@ import javafx.collections.FXCollections;
 import javafx.fxml.Initializable;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
-import javafx.scene.layout.Pane;
 import javafx.util.Duration;
 
 import java.net.URL;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.ResourceBundle;
 
 public class MonthViewController extends BaseTimeLineController implements Initializable {
@@ -37,6 +30,16 @@ public class MonthViewController extends BaseTimeLineController implements Initi
         });
     }
 
+    @Override
+    protected LocalDate getVisibleStartDate() {
+        return timelineStartDate.withDayOfMonth(1);
+    }
+
+    @Override
+    protected LocalDate getVisibleEndDate() {
+        return timelineStartDate.withDayOfMonth(timelineStartDate.lengthOfMonth());
+    }
+
     @Override
     public void setupTimelineColumns() {
         tbl_timeline.getColumns().clear();
@@ -84,45 +87,23 @@ public class MonthViewController extends BaseTimeLineController implements Initi
 
     @Override
     public void drawEvents() {
-        ap_overlay.getChildren().clear();
-
         TableRow<?> row = (TableRow<?>) tbl_timeline.lookup(".table-row-cell");
         ROW_HEIGHT = row.getHeight();
         updateOverlayHeight(tbl_eventName, ap_overlay);
+        drawBookings();
+    }
 
-        LocalDate firstDayOfMonth = timelineStartDate.withDayOfMonth(1);
-        Map<String, Integer> roomIndexMap = new HashMap<>();
-        for (int i = 0; i < roomList.size(); i++) {
-            roomIndexMap.put(roomList.get(i).getRoomNumber(), i);
-        }
-
-        for (BookRoom event : eventsList) {
-            try {
-                Integer roomIndex = roomIndexMap.get(event.getRoomName());
-                if (roomIndex == null)
-                    continue;
-                LocalDateTime startDateTime = LocalDateTime.of(LocalDate.parse(event.getStartDate()),
-                        LocalTime.parse(event.getStartTime()));
-                LocalDateTime endDateTime = LocalDateTime.of(LocalDate.parse(event.getEndDate()),
-                        LocalTime.parse(event.getEndTime()));
-                long dayOffset = ChronoUnit.DAYS.between(firstDayOfMonth, startDateTime.toLocalDate());
-                long endDayOffset = ChronoUnit.DAYS.between(firstDayOfMonth, endDateTime.toLocalDate());
-                if (dayOffset < 0)
-                    continue;
-                double startMinutes = startDateTime.getHour() * 60 + startDateTime.getMinute();
-                double endMinutes = (endDayOffset - dayOffset) * HOURS_PER_DAY * 60 + endDateTime.getHour() * 60
-                        + endDateTime.getMinute();
-                double x = dayOffset * CELL_WIDTH + (startMinutes / (HOURS_PER_DAY * 60)) * CELL_WIDTH;
-                double width = (endMinutes - startMinutes) / (HOURS_PER_DAY * 60) * CELL_WIDTH;
-                double y = roomIndex * ROW_HEIGHT;
-                Pane eventPane = createEventPane(event, x, y, width);
-
-                setupEventPaneInteractions(eventPane, event, ap_overlay);
-
-                ap_overlay.getChildren().add(eventPane);
-            } catch (Exception e) {
-                System.err.println("Invalid date/time format for event: " + event.getFullName());
-            }
-        }
+    @Override
+    protected boolean placeBooking(long start, long end, double[] bounds) {
+        long firstDayOfMonth = timelineStartDate.withDayOfMonth(1).toEpochDay();
+        long dayOffset = Math.floorDiv(start, MINUTES_PER_DAY) - firstDayOfMonth;
+        long endDayOffset = Math.floorDiv(end, MINUTES_PER_DAY) - firstDayOfMonth;
+        if (dayOffset < 0)
+            return false;
+        double startMinutes = Math.floorMod(start, MINUTES_PER_DAY);
+        double endMinutes = (endDayOffset - dayOffset) * MINUTES_PER_DAY + Math.floorMod(end, MINUTES_PER_DAY);
+        bounds[0] = dayOffset * CELL_WIDTH + (startMinutes / MINUTES_PER_DAY) * CELL_WIDTH;
+        bounds[1] = (endMinutes - startMinutes) / MINUTES_PER_DAY * CELL_WIDTH;
+        return true;
     }
 }
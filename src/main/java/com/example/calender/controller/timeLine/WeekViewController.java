@@ -1,23 +1,16 @@
 package com.example.calender.controller.timeLine;
 
-import com.example.calender.models.BookRoom;
 import com.vvg.pos.bean.Room;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.fxml.Initializable;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
-import javafx.scene.layout.Pane;
 import javafx.util.Duration;
 
 import java.net.URL;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.ResourceBundle;
 
 public class WeekViewController extends BaseTimeLineController implements Initializable {
@@ -36,6 +29,11 @@ public class WeekViewController extends BaseTimeLineController implements Initia
         });
     }
 
+    @Override
+    protected LocalDate getVisibleEndDate() {
+        return timelineStartDate.plusDays(6);
+    }
+
     @Override
     public void setupTimelineColumns() {
         tbl_timeline.getColumns().clear();
@@ -80,59 +78,38 @@ public class WeekViewController extends BaseTimeLineController implements Initia
 
     @Override
     public void drawEvents() {
-        ap_overlay.getChildren().clear();
         TableRow<?> row = (TableRow<?>) tbl_timeline.lookup(".table-row-cell");
         ROW_HEIGHT = row.getHeight();
+        drawBookings();
+    }
 
-        Map<String, Integer> roomIndexMap = new HashMap<>();
-        for (int i = 0; i < roomList.size(); i++) {
-            roomIndexMap.put(roomList.get(i).getRoomNumber(), i);
-        }
-
-        for (BookRoom event : eventsList) {
-            try {
-                Integer roomIndex = roomIndexMap.get(event.getRoomName());
-                if (roomIndex == null)
-                    continue;
-
-                LocalDateTime startDateTime = LocalDateTime.of(LocalDate.parse(event.getStartDate()),
-                        LocalTime.parse(event.getStartTime()));
-                LocalDateTime endDateTime = LocalDateTime.of(LocalDate.parse(event.getEndDate()),
-                        LocalTime.parse(event.getEndTime()));
-
-                long dayOffset = ChronoUnit.DAYS.between(timelineStartDate, startDateTime.toLocalDate());
-                long endDayOffset = ChronoUnit.DAYS.between(timelineStartDate, endDateTime.toLocalDate());
-
-                // Chỉ hiển thị sự kiện trong phạm vi 7 ngày của tuần
-                if (dayOffset < 0 || dayOffset >= 7)
-                    continue;
-
-                double startMinutes = startDateTime.getHour() * 60 + startDateTime.getMinute();
-                double endMinutes;
-
-                // Nếu sự kiện kéo dài qua nhiều ngày
-                if (endDayOffset > dayOffset) {
-                    if (endDayOffset >= 7) { // Nếu kết thúc sau tuần hiện tại
-                        endMinutes = (7 - dayOffset) * HOURS_PER_DAY * 60; // Kéo dài đến hết tuần
-                    } else {
-                        endMinutes = (endDayOffset - dayOffset) * HOURS_PER_DAY * 60
-                                + endDateTime.getHour() * 60 + endDateTime.getMinute();
-                    }
-                } else {
-                    endMinutes = endDateTime.getHour() * 60 + endDateTime.getMinute();
-                }
-
-                double x = dayOffset * CELL_WIDTH + (startMinutes / (HOURS_PER_DAY * 60)) * CELL_WIDTH;
-                double width = (endMinutes - startMinutes) / (HOURS_PER_DAY * 60) * CELL_WIDTH;
-                double y = roomIndex * ROW_HEIGHT;
-
-                Pane eventPane = createEventPane(event, x, y, width);
-                setupEventPaneInteractions(eventPane, event, ap_overlay);
-                ap_overlay.getChildren().add(eventPane);
-
-            } catch (Exception e) {
-                System.err.println("Invalid date/time format for event: " + event.getFullName());
+    @Override
+    protected boolean placeBooking(long start, long end, double[] bounds) {
+        long weekStartDay = timelineStartDate.toEpochDay();
+        long dayOffset = Math.floorDiv(start, MINUTES_PER_DAY) - weekStartDay;
+        long endDayOffset = Math.floorDiv(end, MINUTES_PER_DAY) - weekStartDay;
+
+        // Chỉ hiển thị sự kiện trong phạm vi 7 ngày của tuần
+        if (dayOffset < 0 || dayOffset >= 7)
+            return false;
+
+        double startMinutes = Math.floorMod(start, MINUTES_PER_DAY);
+        double endMinutes;
+
+        // Nếu sự kiện kéo dài qua nhiều ngày
+        if (endDayOffset > dayOffset) {
+            if (endDayOffset >= 7) { // Nếu kết thúc sau tuần hiện tại
+                endMinutes = (7 - dayOffset) * MINUTES_PER_DAY; // Kéo dài đến hết tuần
+            } else {
+                endMinutes = (endDayOffset - dayOffset) * MINUTES_PER_DAY
+                        + Math.floorMod(end, MINUTES_PER_DAY);
             }
+        } else {
+            endMinutes = Math.floorMod(end, MINUTES_PER_DAY);
         }
+
+        bounds[0] = dayOffset * CELL_WIDTH + (startMinutes / MINUTES_PER_DAY) * CELL_WIDTH;
+        bounds[1] = (endMinutes - startMinutes) / MINUTES_PER_DAY * CELL_WIDTH;
+        return true;
     }
 }
@@ -0,0 +1,43 @@
+package com.example.calender.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+// Kết quả của một thao tác trong lô ghi, cùng thứ tự với lúc thao tác được thêm vào lô
+@Data
+@Builder
+public class BatchItemResult {
+
+    public enum Operation {
+        INSERT, UPDATE, DELETE
+    }
+
+    public enum Status {
+        // Đã ghi
+        APPLIED,
+        // Trùng giờ với lượt đặt đã có hoặc với thao tác khác trong lô, xem conflicts
+        CONFLICT,
+        // Bản ghi cần sửa/xóa không còn
+        NOT_FOUND,
+        // Thiếu phòng, giờ không hợp lệ, quy tắc lặp hỏng hoặc cùng bản ghi xuất hiện nhiều lần trong lô
+        INVALID,
+        // Hợp lệ nhưng không ghi vì thao tác khác trong lô bị lỗi
+        SKIPPED,
+        // Kho không ghi được, cả lô đã được hoàn tác
+        FAILED
+    }
+
+    private int index;
+    private Operation operation;
+    // Bản ghi sau thao tác, với DELETE là bản ghi bị xóa
+    private BookRoom record;
+    private Status status;
+    private String message;
+    private List<BookRoom> conflicts;
+
+    public boolean isApplied() {
+        return status == Status.APPLIED;
+    }
+}
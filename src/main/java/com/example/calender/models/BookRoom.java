@@ -1,11 +1,17 @@
 package com.example.calender.models;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
 
 @Data
-@Builder
-public class BookRoom{
+@Builder(toBuilder = true)
+public class BookRoom implements Identifiable {
+    private String id;
     private String fullName;
     private String email;
     private String phoneNumber;
@@ -17,4 +23,70 @@ public class BookRoom{
     private String purpose;
     private String color; // e.g., "#FF5733"
     private String status; // "pending", "approved", "rejected"
+    // Quy tắc lặp (xem RecurrenceRule), null nếu không lặp; khi có thì ngày giờ ở trên là của lần đầu tiên
+    private String recurrence;
+
+    // Ngày giờ đã parse sẵn, không nằm trong builder/JSON; các setter ngày giờ bên dưới làm mới lại
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient ParsedTimes times = new ParsedTimes();
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient RecurrenceRule.Parsed rule = new RecurrenceRule.Parsed();
+
+    public void setStartDate(String startDate) {
+        this.startDate = startDate;
+        times.invalidate();
+    }
+
+    public void setEndDate(String endDate) {
+        this.endDate = endDate;
+        times.invalidate();
+    }
+
+    public void setStartTime(String startTime) {
+        this.startTime = startTime;
+        times.invalidate();
+    }
+
+    public void setEndTime(String endTime) {
+        this.endTime = endTime;
+        times.invalidate();
+    }
+
+    public LocalDate getStartDay() {
+        return times.dates(startDate, endDate).startDay();
+    }
+
+    public LocalDate getEndDay() {
+        return times.dates(startDate, endDate).endDay();
+    }
+
+    // Số phút tính từ 00:00 của ngày bắt đầu/kết thúc
+    public int getStartMinuteOfDay() {
+        return times.times(startTime, endTime).startMinute();
+    }
+
+    public int getEndMinuteOfDay() {
+        return times.times(startTime, endTime).endMinute();
+    }
+
+    // Số phút tính từ 1970-01-01 00:00, dùng để so sánh chồng lấn mà không tạo LocalDateTime
+    public long getStartEpochMinute() {
+        return times.dates(startDate, endDate).times(startTime, endTime).startEpochMinute();
+    }
+
+    public long getEndEpochMinute() {
+        return times.dates(startDate, endDate).times(startTime, endTime).endEpochMinute();
+    }
+
+    public boolean isRecurring() {
+        return recurrence != null && !recurrence.isEmpty();
+    }
+
+    // Quy tắc lặp đã parse, null nếu không lặp
+    public RecurrenceRule getRecurrenceRule() {
+        return rule.of(recurrence);
+    }
 }
@@ -0,0 +1,26 @@
+package com.example.calender.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+// Nhóm lượt đặt chồng lấn nhau liên tiếp trong cùng một phòng, khoảng [start, end) là hợp của cả nhóm
+@Data
+@Builder
+public class ConflictGroup {
+    private String roomName;
+    private long startEpochMinute;
+    private long endEpochMinute;
+    private List<BookRoom> bookings;
+
+    public LocalDateTime getStart() {
+        return LocalDateTime.ofEpochSecond(startEpochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    public LocalDateTime getEnd() {
+        return LocalDateTime.ofEpochSecond(endEpochMinute * 60, 0, ZoneOffset.UTC);
+    }
+}
@@ -7,7 +7,8 @@ import java.time.LocalDate;
 
 @Data
 @Builder
-public class EventSchedule {
+public class EventSchedule implements Identifiable {
+    private String id;
     private String name;
     private LocalDate startDate;
     private LocalDate endDate;
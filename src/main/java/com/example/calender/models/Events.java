@@ -1,15 +1,62 @@
 package com.example.calender.models;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
 
 @Data
 @Builder
-public class Events {
+public class Events implements Identifiable {
+    private String id;
     private String name;
     private String date; // Format: YYYY-MM-DD
     private String startHour;
     private String endHour;
     private String color;
     private String description;
+
+    // Ngày giờ đã parse sẵn, không nằm trong builder/JSON; các setter ngày giờ bên dưới làm mới lại
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient ParsedTimes times = new ParsedTimes();
+
+    public void setDate(String date) {
+        this.date = date;
+        times.invalidate();
+    }
+
+    public void setStartHour(String startHour) {
+        this.startHour = startHour;
+        times.invalidate();
+    }
+
+    public void setEndHour(String endHour) {
+        this.endHour = endHour;
+        times.invalidate();
+    }
+
+    public LocalDate getDay() {
+        return times.dates(date, date).startDay();
+    }
+
+    // Số phút tính từ 00:00
+    public int getStartMinuteOfDay() {
+        return times.times(startHour, endHour).startMinute();
+    }
+
+    public int getEndMinuteOfDay() {
+        return times.times(startHour, endHour).endMinute();
+    }
+
+    public long getStartEpochMinute() {
+        return times.dates(date, date).times(startHour, endHour).startEpochMinute();
+    }
+
+    public long getEndEpochMinute() {
+        return times.dates(date, date).times(startHour, endHour).endEpochMinute();
+    }
 }
@@ -0,0 +1,24 @@
+package com.example.calender.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Khoảng trống đề xuất cho một phòng, thời gian tính bằng epoch-minute như BookRoom#getStartEpochMinute
+@Data
+@Builder
+public class FreeSlot {
+    private String roomName;
+    private long startEpochMinute;
+    private long endEpochMinute;
+
+    public LocalDateTime getStart() {
+        return LocalDateTime.ofEpochSecond(startEpochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    public LocalDateTime getEnd() {
+        return LocalDateTime.ofEpochSecond(endEpochMinute * 60, 0, ZoneOffset.UTC);
+    }
+}
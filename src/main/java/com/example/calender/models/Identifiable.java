@@ -0,0 +1,18 @@
+package com.example.calender.models;
+
+import java.util.UUID;
+
+/**
+ * Bản ghi có id duy nhất, không đổi qua các lần sửa; dùng để tìm, sửa, xóa
+ * mà không phải so sánh toàn bộ các trường.
+ */
+public interface Identifiable {
+
+    String getId();
+
+    void setId(String id);
+
+    static String newId() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.calender.models;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Objects;
+
+/**
+ * Ngày giờ đã parse sẵn của một bản ghi, chỉ parse lại khi chuỗi ngày/giờ thay đổi.
+ * Model giữ nó trong trường transient nên không ảnh hưởng JSON, equals hay hashCode.
+ */
+final class ParsedTimes {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+
+    private LocalDate startDay;
+    private LocalDate endDay;
+    private int startMinute;
+    private int endMinute;
+    // Ngày và giờ được parse riêng để bản ghi thiếu giờ vẫn lọc theo ngày được
+    private volatile boolean datesValid;
+    private volatile boolean timesValid;
+
+    void invalidate() {
+        datesValid = false;
+        timesValid = false;
+    }
+
+    ParsedTimes dates(String startDate, String endDate) {
+        if (!datesValid) {
+            startDay = parseDate(startDate);
+            // Thiếu ngày kết thúc thì coi như kết thúc trong ngày bắt đầu
+            endDay = endDate == null || Objects.equals(endDate, startDate) ? startDay : parseDate(endDate);
+            datesValid = true;
+        }
+        return this;
+    }
+
+    ParsedTimes times(String startTime, String endTime) {
+        if (!timesValid) {
+            startMinute = parseMinuteOfDay(startTime);
+            endMinute = parseMinuteOfDay(endTime);
+            timesValid = true;
+        }
+        return this;
+    }
+
+    // "yyyy-MM-dd" đọc thẳng từng ký tự; dạng khác hoặc ngày sai mới qua LocalDate.parse (và lỗi như cũ)
+    static LocalDate parseDate(String text) {
+        if (text.length() == 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 7);
+            int day = digits(text, 8, 10);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException ignored) {
+                }
+            }
+        }
+        return LocalDate.parse(text);
+    }
+
+    // "HH:mm" đọc thẳng từng ký tự, dạng khác (có giây...) qua LocalTime.parse
+    static int parseMinuteOfDay(String text) {
+        if (text.length() == 5 && text.charAt(2) == ':') {
+            int hour = digits(text, 0, 2);
+            int minute = digits(text, 3, 5);
+            if (hour >= 0 && hour < 24 && minute >= 0 && minute < 60) {
+                return hour * 60 + minute;
+            }
+        }
+        return LocalTime.parse(text).toSecondOfDay() / 60;
+    }
+
+    // Giá trị các chữ số trong [from, to), -1 nếu có ký tự không phải chữ số
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    LocalDate startDay() {
+        return startDay;
+    }
+
+    LocalDate endDay() {
+        return endDay;
+    }
+
+    int startMinute() {
+        return startMinute;
+    }
+
+    int endMinute() {
+        return endMinute;
+    }
+
+    long startEpochMinute() {
+        return startDay.toEpochDay() * MINUTES_PER_DAY + startMinute;
+    }
+
+    long endEpochMinute() {
+        return endDay.toEpochDay() * MINUTES_PER_DAY + endMinute;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.calender.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Tổng hợp một kỳ báo cáo [periodStart, periodEnd] trên mọi phòng. Cao điểm là số lượt đặt
+ * diễn ra cùng một phút lớn nhất trong kỳ; tỉ lệ sử dụng là phút đã đặt chia cho phút của kỳ
+ * nhân số phòng có trong dữ liệu.
+ */
+@Data
+@Builder
+public class PeriodUsage {
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
+    private long bookedMinutes;
+    private long bookings;
+    private long approvedMinutes;
+    private long pendingMinutes;
+    private long rejectedMinutes;
+    private int peakConcurrent;
+    private double occupancyRate;
+    // Chỉ các phòng có lượt đặt trong kỳ
+    private List<RoomUsage> rooms;
+
+    public double getBookedHours() {
+        return bookedMinutes / 60.0;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.calender.models;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Quy tắc lặp của một lượt đặt, lưu dạng chuỗi gần với RRULE:
+ * {@code FREQ=WEEKLY;INTERVAL=1;COUNT=10;UNTIL=2025-12-31;EXDATE=2025-03-11,2025-03-18}.
+ * Lần thứ k bắt đầu ở ngày đầu tiên cộng k * INTERVAL ngày/tuần/tháng (theo tháng thì ngày 31 rơi vào
+ * tháng ngắn được lùi về ngày cuối tháng). COUNT tính cả các ngày bị bỏ qua trong EXDATE.
+ * Các lần diễn ra được tính trực tiếp theo chỉ số nên duyệt một khoảng ngày không phải đi từ lần đầu.
+ */
+@Getter
+public final class RecurrenceRule {
+
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY
+    }
+
+    // Id của một lần diễn ra: id chuỗi lặp + '#' + ngày bắt đầu của lần đó
+    private static final char OCCURRENCE_SEPARATOR = '#';
+
+    private final Frequency frequency;
+    private final int interval;
+    private final Integer count;
+    private final LocalDate until;
+    private final SortedSet<LocalDate> exceptions;
+
+    public RecurrenceRule(Frequency frequency, int interval, Integer count, LocalDate until,
+                          SortedSet<LocalDate> exceptions) {
+        if (frequency == null) {
+            throw new IllegalArgumentException("Thiếu FREQ trong quy tắc lặp");
+        }
+        if (interval < 1 || (count != null && count < 1)) {
+            throw new IllegalArgumentException("INTERVAL và COUNT phải lớn hơn 0");
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+        this.exceptions = Collections.unmodifiableSortedSet(new TreeSet<>(exceptions));
+    }
+
+    public static RecurrenceRule parse(String text) {
+        Frequency frequency = null;
+        int interval = 1;
+        Integer count = null;
+        LocalDate until = null;
+        SortedSet<LocalDate> exceptions = new TreeSet<>();
+        for (String part : text.split(";")) {
+            int eq = part.indexOf('=');
+            if (eq < 0) {
+                continue;
+            }
+            String key = part.substring(0, eq).trim().toUpperCase();
+            String value = part.substring(eq + 1).trim();
+            switch (key) {
+                case "FREQ":
+                    frequency = Frequency.valueOf(value.toUpperCase());
+                    break;
+                case "INTERVAL":
+                    interval = Integer.parseInt(value);
+                    break;
+                case "COUNT":
+                    count = Integer.parseInt(value);
+                    break;
+                case "UNTIL":
+                    until = ParsedTimes.parseDate(value);
+                    break;
+                case "EXDATE":
+                    for (String date : value.split(",")) {
+                        if (!date.trim().isEmpty()) {
+                            exceptions.add(ParsedTimes.parseDate(date.trim()));
+                        }
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Không hỗ trợ " + key + " trong quy tắc lặp");
+            }
+        }
+        return new RecurrenceRule(frequency, interval, count, until, exceptions);
+    }
+
+    public String format() {
+        StringBuilder text = new StringBuilder("FREQ=").append(frequency);
+        if (interval != 1) {
+            text.append(";INTERVAL=").append(interval);
+        }
+        if (count != null) {
+            text.append(";COUNT=").append(count);
+        }
+        if (until != null) {
+            text.append(";UNTIL=").append(until);
+        }
+        if (!exceptions.isEmpty()) {
+            text.append(";EXDATE=");
+            boolean first = true;
+            for (LocalDate date : exceptions) {
+                if (!first) {
+                    text.append(',');
+                }
+                text.append(date);
+                first = false;
+            }
+        }
+        return text.toString();
+    }
+
+    // Bản sao có thêm ngày bỏ qua
+    public RecurrenceRule withException(LocalDate date) {
+        SortedSet<LocalDate> added = new TreeSet<>(exceptions);
+        added.add(date);
+        return new RecurrenceRule(frequency, interval, count, until, added);
+    }
+
+    // Ngày bắt đầu của lần thứ k (tính từ 0), chưa xét COUNT, UNTIL, EXDATE
+    public LocalDate occurrence(LocalDate first, long k) {
+        switch (frequency) {
+            case DAILY:
+                return first.plusDays(k * interval);
+            case WEEKLY:
+                return first.plusWeeks(k * interval);
+            default:
+                // Luôn cộng từ ngày đầu để ngày 31 không bị trôi sau một tháng ngắn
+                return first.plusMonths(k * interval);
+        }
+    }
+
+    // Chỉ số nhỏ nhất có ngày bắt đầu không trước date
+    private long firstIndexOnOrAfter(LocalDate first, LocalDate date) {
+        if (!date.isAfter(first)) {
+            return 0;
+        }
+        long k;
+        if (frequency == Frequency.MONTHLY) {
+            k = ChronoUnit.MONTHS.between(first.withDayOfMonth(1), date.withDayOfMonth(1)) / interval;
+        } else {
+            long step = frequency == Frequency.WEEKLY ? 7L * interval : interval;
+            k = (ChronoUnit.DAYS.between(first, date) + step - 1) / step;
+        }
+        while (occurrence(first, k).isBefore(date)) {
+            k++;
+        }
+        return k;
+    }
+
+    /**
+     * Gọi {@code consumer} với ngày bắt đầu của từng lần diễn ra trong [from, to], theo thứ tự,
+     * bỏ qua EXDATE. Chỉ duyệt các lần nằm trong khoảng.
+     */
+    public void forEachStart(LocalDate first, LocalDate from, LocalDate to, Consumer<LocalDate> consumer) {
+        for (long k = firstIndexOnOrAfter(first, from); count == null || k < count; k++) {
+            LocalDate start = occurrence(first, k);
+            if (start.isAfter(to) || (until != null && start.isAfter(until))) {
+                return;
+            }
+            if (!exceptions.contains(start)) {
+                consumer.accept(start);
+            }
+        }
+    }
+
+    // Ngày bắt đầu của lần cuối cùng theo COUNT/UNTIL, null nếu lặp vô hạn
+    public LocalDate lastStart(LocalDate first) {
+        LocalDate last = null;
+        if (count != null) {
+            last = occurrence(first, count - 1);
+        }
+        if (until != null) {
+            long k = firstIndexOnOrAfter(first, until.plusDays(1)) - 1;
+            LocalDate byUntil = k < 0 ? first.minusDays(1) : occurrence(first, k);
+            last = last == null || byUntil.isBefore(last) ? byUntil : last;
+        }
+        return last;
+    }
+
+    public static String occurrenceId(String seriesId, LocalDate start) {
+        return seriesId + OCCURRENCE_SEPARATOR + start;
+    }
+
+    // Id chuỗi lặp của một lần diễn ra, null nếu id không phải của lần diễn ra
+    public static String seriesIdOf(String id) {
+        int separator = id == null ? -1 : id.lastIndexOf(OCCURRENCE_SEPARATOR);
+        return separator < 0 ? null : id.substring(0, separator);
+    }
+
+    public static LocalDate occurrenceDateOf(String id) {
+        return ParsedTimes.parseDate(id.substring(id.lastIndexOf(OCCURRENCE_SEPARATOR) + 1));
+    }
+
+    /**
+     * Bản parse dùng lại trong model: chỉ parse lại khi chuỗi quy tắc đổi.
+     */
+    public static final class Parsed {
+        private String source;
+        private RecurrenceRule rule;
+
+        public synchronized RecurrenceRule of(String text) {
+            if (text == null || text.isEmpty()) {
+                return null;
+            }
+            if (!text.equals(source)) {
+                rule = parse(text);
+                source = text;
+            }
+            return rule;
+        }
+    }
+}
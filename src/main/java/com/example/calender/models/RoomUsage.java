@@ -0,0 +1,20 @@
+package com.example.calender.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Mức sử dụng của một phòng trong một kỳ báo cáo, thời gian tính bằng phút
+@Data
+@Builder
+public class RoomUsage {
+    private String roomName;
+    private long bookedMinutes;
+    private long bookings;
+    private long approvedMinutes;
+    private long pendingMinutes;
+    private long rejectedMinutes;
+
+    public double getBookedHours() {
+        return bookedMinutes / 60.0;
+    }
+}
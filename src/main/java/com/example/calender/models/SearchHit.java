@@ -0,0 +1,23 @@
+package com.example.calender.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// Một kết quả tìm kiếm: bản ghi gốc kèm tiêu đề, mô tả ngắn và ngày để nhảy tới trên giao diện
+@Data
+@Builder
+public class SearchHit {
+
+    public enum Kind {
+        BOOKING, TIME_LINE_EVENT, SCHEDULE
+    }
+
+    private Kind kind;
+    private String id;
+    private String title;
+    private String detail;
+    private LocalDate date;
+    private Identifiable record;
+}
@@ -0,0 +1,23 @@
+package com.example.calender.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Báo cáo sử dụng phòng trong [from, to], chia kỳ theo ngày, tuần (thứ 2 - chủ nhật) hoặc tháng
+@Data
+@Builder
+public class UtilizationReport {
+
+    public enum Granularity {
+        DAY, WEEK, MONTH
+    }
+
+    private LocalDate from;
+    private LocalDate to;
+    private Granularity granularity;
+    private int roomCount;
+    private List<PeriodUsage> periods;
+}
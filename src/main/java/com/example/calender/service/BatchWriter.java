@@ -0,0 +1,276 @@
+package com.example.calender.service;
+
+import com.example.calender.models.BatchItemResult;
+import com.example.calender.models.BookRoom;
+import com.example.calender.models.RecurrenceRule;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Lô thao tác thêm/sửa/xóa lượt đặt, lấy từ {@link TimeLineByDayService#batch()}.
+ * Khi {@link #commit()} cả lô được kiểm tra một lượt trong khóa của service: trùng giờ với lượt đặt
+ * đã có (không tính các bản ghi chính lô này sửa/xóa) và trùng giờ giữa các thao tác trong lô.
+ * Chỉ khi mọi thao tác hợp lệ lô mới được ghi; kho áp cả lô như một khối và ghi xuống đĩa một lần.
+ * <p>
+ * Hai lượt đặt cùng phòng chồng giờ là trùng, trừ khi cùng email như kiểm tra khi sửa ({@code isValidTime})
+ * và {@link ConflictAudit}. Sửa/xóa một lần diễn ra của
+ * chuỗi lặp giống {@link TimeLineByDayService#updateEvent}: chuỗi thêm ngày bỏ qua, bản sửa thành lượt đặt mới.
+ */
+public class BatchWriter {
+
+    private final TimeLineByDayService service;
+    private final List<Item> items = new ArrayList<>();
+
+    BatchWriter(TimeLineByDayService service) {
+        this.service = service;
+    }
+
+    static final class Item {
+        final int index;
+        final BatchItemResult.Operation operation;
+        final BookRoom previous;
+        final BookRoom record;
+        // Id chuỗi lặp khi previous là một lần diễn ra
+        String seriesId;
+        BatchItemResult.Status status;
+        String message;
+        // Khóa là id lượt đặt đã có, hoặc chính lần diễn ra/bản ghi của thao tác khác trong lô
+        final Map<Object, BookRoom> conflicts = new LinkedHashMap<>();
+
+        Item(int index, BatchItemResult.Operation operation, BookRoom previous, BookRoom record) {
+            this.index = index;
+            this.operation = operation;
+            this.previous = previous;
+            this.record = record;
+        }
+
+        void fail(BatchItemResult.Status status, String message) {
+            if (this.status == null) {
+                this.status = status;
+                this.message = message;
+            }
+        }
+    }
+
+    // Khoảng [start, end) epoch-minute của một lượt đặt (hoặc một lần diễn ra) mà lô sẽ ghi
+    private static final class Span {
+        final Item item;
+        final BookRoom booking;
+        final long start;
+        final long end;
+
+        Span(Item item, BookRoom booking) {
+            this.item = item;
+            this.booking = booking;
+            this.start = booking.getStartEpochMinute();
+            this.end = booking.getEndEpochMinute();
+        }
+    }
+
+    public BatchWriter insert(BookRoom record) {
+        items.add(new Item(items.size(), BatchItemResult.Operation.INSERT, null, record));
+        return this;
+    }
+
+    public BatchWriter update(BookRoom previous, BookRoom record) {
+        items.add(new Item(items.size(), BatchItemResult.Operation.UPDATE, previous, record));
+        return this;
+    }
+
+    public BatchWriter delete(BookRoom record) {
+        items.add(new Item(items.size(), BatchItemResult.Operation.DELETE, record, null));
+        return this;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Kiểm tra rồi ghi cả lô, trả về kết quả theo thứ tự thao tác: hoặc mọi thao tác APPLIED,
+     * hoặc không thao tác nào được ghi. Lô được làm rỗng để dùng lại.
+     */
+    public List<BatchItemResult> commit() {
+        List<Item> batch = new ArrayList<>(items);
+        items.clear();
+        synchronized (service) {
+            if (validate(batch)) {
+                service.applyBatch(batch);
+            }
+        }
+        List<BatchItemResult> results = new ArrayList<>(batch.size());
+        for (Item item : batch) {
+            results.add(BatchItemResult.builder()
+                    .index(item.index)
+                    .operation(item.operation)
+                    .record(item.record != null ? item.record : item.previous)
+                    .status(item.status)
+                    .message(item.message)
+                    .conflicts(new ArrayList<>(item.conflicts.values()))
+                    .build());
+        }
+        return results;
+    }
+
+    // Đánh dấu lỗi cho từng thao tác, trả về true nếu cả lô ghi được
+    private boolean validate(List<Item> batch) {
+        // Id các bản ghi lô này sửa/xóa (kể cả lần diễn ra), lượt đặt đã có mang id này không còn tính trùng
+        Set<String> replaced = new HashSet<>();
+        for (Item item : batch) {
+            if (item.record != null) {
+                checkRecord(item);
+            }
+            if (item.previous != null) {
+                checkTarget(item, replaced);
+            }
+        }
+        for (Item item : batch) {
+            if (item.seriesId != null && replaced.contains(item.seriesId)) {
+                item.fail(BatchItemResult.Status.INVALID, "Chuỗi lặp của lần diễn ra này cũng bị sửa/xóa trong lô");
+            }
+        }
+        for (Item item : batch) {
+            if (item.status == null && item.record != null) {
+                findExistingConflicts(item, replaced);
+            }
+        }
+        findBatchConflicts(batch);
+
+        boolean valid = true;
+        for (Item item : batch) {
+            if (item.status == null && !item.conflicts.isEmpty()) {
+                item.fail(BatchItemResult.Status.CONFLICT, "Trùng giờ với " + item.conflicts.size() + " lượt đặt");
+            }
+            valid &= item.status == null;
+        }
+        if (!valid) {
+            for (Item item : batch) {
+                item.fail(BatchItemResult.Status.SKIPPED, "Không ghi vì lô có thao tác lỗi");
+            }
+        }
+        return valid;
+    }
+
+    private static void checkRecord(Item item) {
+        BookRoom record = item.record;
+        if (record.getRoomName() == null || record.getRoomName().trim().isEmpty()) {
+            item.fail(BatchItemResult.Status.INVALID, "Thiếu phòng");
+            return;
+        }
+        try {
+            if (record.getEndEpochMinute() <= record.getStartEpochMinute()) {
+                item.fail(BatchItemResult.Status.INVALID, "Giờ kết thúc phải sau giờ bắt đầu");
+            }
+            record.getRecurrenceRule();
+        } catch (RuntimeException e) {
+            item.fail(BatchItemResult.Status.INVALID, "Ngày giờ hoặc quy tắc lặp không hợp lệ: " + e.getMessage());
+        }
+    }
+
+    // Bản ghi cần sửa/xóa phải còn và chỉ được một thao tác trong lô chạm tới
+    private void checkTarget(Item item, Set<String> replaced) {
+        String id = item.previous.getId();
+        String seriesId = RecurrenceRule.seriesIdOf(id);
+        if (seriesId != null) {
+            BookRoom series = service.findSeries(seriesId);
+            if (series == null || !isOccurrenceOf(series, id)) {
+                item.fail(BatchItemResult.Status.NOT_FOUND, "Không tìm thấy lần diễn ra " + id);
+                return;
+            }
+            item.seriesId = seriesId;
+        } else if (id == null || service.findStored(id) == null) {
+            item.fail(BatchItemResult.Status.NOT_FOUND, "Không tìm thấy lượt đặt " + id);
+            return;
+        }
+        if (!replaced.add(id)) {
+            item.fail(BatchItemResult.Status.INVALID, "Lượt đặt " + id + " đã có thao tác khác trong lô");
+        }
+    }
+
+    private boolean isOccurrenceOf(BookRoom series, String occurrenceId) {
+        LocalDate date = RecurrenceRule.occurrenceDateOf(occurrenceId);
+        for (BookRoom occurrence : service.expandRecurrence(series, date, date)) {
+            if (occurrenceId.equals(occurrence.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void findExistingConflicts(Item item, Set<String> replaced) {
+        BookRoom record = item.record;
+        List<BookRoom> overlapping = record.isRecurring()
+                ? service.findSeriesOverlapping(record)
+                : service.findOverlapping(record.getRoomName(), record.getStartEpochMinute(), record.getEndEpochMinute());
+        for (BookRoom other : overlapping) {
+            if (Objects.equals(other.getEmail(), record.getEmail())) {
+                continue;
+            }
+            if (!replaced.contains(other.getId()) && !replaced.contains(RecurrenceRule.seriesIdOf(other.getId()))) {
+                item.conflicts.put(other.getId(), other);
+            }
+        }
+    }
+
+    /**
+     * Trùng giữa các thao tác trong lô: gom các khoảng lô sẽ ghi theo phòng, sắp theo giờ bắt đầu rồi quét
+     * với danh sách khoảng đang mở. Chuỗi lặp vô hạn được sinh đến ngày xa nhất của lô trong phòng
+     * cộng thêm {@value TimeLineByDayService#OPEN_SERIES_CHECK_DAYS} ngày như khi kiểm tra với dữ liệu đã có.
+     */
+    private static void findBatchConflicts(List<Item> batch) {
+        Map<String, List<Item>> byRoom = new HashMap<>();
+        for (Item item : batch) {
+            if (item.record != null && item.status != BatchItemResult.Status.INVALID) {
+                byRoom.computeIfAbsent(item.record.getRoomName(), room -> new ArrayList<>()).add(item);
+            }
+        }
+        for (List<Item> inRoom : byRoom.values()) {
+            if (inRoom.size() < 2) {
+                continue;
+            }
+            LocalDate lastDay = null;
+            for (Item item : inRoom) {
+                LocalDate end = item.record.getEndDay();
+                lastDay = lastDay == null || end.isAfter(lastDay) ? end : lastDay;
+            }
+            List<Span> spans = new ArrayList<>();
+            for (Item item : inRoom) {
+                BookRoom record = item.record;
+                if (!record.isRecurring()) {
+                    spans.add(new Span(item, record));
+                    continue;
+                }
+                LocalDate first = record.getStartDay();
+                LocalDate last = record.getRecurrenceRule().lastStart(first);
+                if (last == null) {
+                    last = lastDay.plusDays(TimeLineByDayService.OPEN_SERIES_CHECK_DAYS);
+                }
+                for (BookRoom occurrence : RecurrenceIndex.expand(record, first, last)) {
+                    spans.add(new Span(item, occurrence));
+                }
+            }
+            spans.sort(Comparator.comparingLong(span -> span.start));
+            List<Span> open = new ArrayList<>();
+            for (Span span : spans) {
+                open.removeIf(other -> other.end <= span.start);
+                for (Span other : open) {
+                    if (other.item != span.item
+                            && !Objects.equals(other.item.record.getEmail(), span.item.record.getEmail())) {
+                        span.item.conflicts.put(other.booking, other.booking);
+                        other.item.conflicts.put(span.booking, span.booking);
+                    }
+                }
+                open.add(span);
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.calender.service;
+
+import com.example.calender.models.BookRoom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bảng đặt phòng lưu theo cột: phòng, màu, trạng thái là mã số nguyên (mỗi giá trị khác nhau
+ * một mã), thời gian bắt đầu/kết thúc là epoch-minute kiểu long, mỗi cột một mảng nguyên thủy.
+ * Các trường chữ còn lại không chép sang mà đọc qua bản ghi gốc của dòng ({@link Cursor#record()}).
+ * Các vòng lặp vẽ chỉ duyệt mảng liên tiếp, không tạo đối tượng cho từng dòng. Thứ tự dòng theo thời điểm
+ * bắt đầu được giữ riêng nên con trỏ theo khoảng tìm nhị phân tới dòng đầu tiên thay vì quét cả bảng.
+ * <p>
+ * Bảng được {@link TimeLineByDayService} dựng và cập nhật; chỉ đọc trên cùng luồng với các thay đổi.
+ */
+public class BookingTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Codes rooms = new Codes();
+    private final Codes colors = new Codes();
+    private final Codes statuses = new Codes();
+    private final Map<String, Integer> rowById = new HashMap<>();
+
+    private int size;
+    private int[] room = new int[INITIAL_CAPACITY];
+    private long[] start = new long[INITIAL_CAPACITY];
+    private long[] end = new long[INITIAL_CAPACITY];
+    private int[] color = new int[INITIAL_CAPACITY];
+    private int[] status = new int[INITIAL_CAPACITY];
+    private BookRoom[] records = new BookRoom[INITIAL_CAPACITY];
+    // Số dòng xếp theo start tăng dần
+    private int[] order = new int[INITIAL_CAPACITY];
+    // Độ dài lớn nhất của một lượt đặt (chỉ tăng): dòng bắt đầu trước from - maxSpan không thể giao với from
+    private long maxSpan;
+
+    public int size() {
+        return size;
+    }
+
+    // Số mã phòng đã cấp, mã phòng nằm trong [0, roomCount())
+    public int roomCount() {
+        return rooms.size();
+    }
+
+    public int roomCode(String roomName) {
+        return rooms.find(roomName);
+    }
+
+    public String roomName(int code) {
+        return rooms.value(code);
+    }
+
+    // Duyệt mọi dòng
+    public Cursor cursor() {
+        return new Cursor(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Duyệt các dòng giao với [fromEpochMinute, toEpochMinute)
+    public Cursor cursor(long fromEpochMinute, long toEpochMinute) {
+        return new Cursor(fromEpochMinute, toEpochMinute);
+    }
+
+    void add(BookRoom bookRoom) {
+        if (bookRoom.getId() == null || bookRoom.getRoomName() == null) {
+            return;
+        }
+        // Parse trước khi lấy dòng: ngày giờ hỏng ném lỗi mà không để lại dòng trống
+        long startMinute = bookRoom.getStartEpochMinute();
+        long endMinute = bookRoom.getEndEpochMinute();
+        Integer existing = rowById.get(bookRoom.getId());
+        int row;
+        if (existing != null) {
+            row = existing;
+            unlink(row);
+        } else {
+            ensureCapacity(size + 1);
+            row = size++;
+        }
+        room[row] = rooms.code(bookRoom.getRoomName());
+        start[row] = startMinute;
+        end[row] = endMinute;
+        color[row] = colors.code(bookRoom.getColor());
+        status[row] = statuses.code(bookRoom.getStatus());
+        records[row] = bookRoom;
+        rowById.put(bookRoom.getId(), row);
+        maxSpan = Math.max(maxSpan, endMinute - startMinute);
+        link(row);
+    }
+
+    // Xóa bằng cách chuyển dòng cuối vào chỗ trống, thứ tự dòng không được giữ
+    void remove(String id) {
+        Integer removed = id == null ? null : rowById.remove(id);
+        if (removed == null) {
+            return;
+        }
+        int row = removed;
+        unlink(row);
+        int last = --size;
+        if (row != last) {
+            order[positionOf(last, size)] = row;
+            room[row] = room[last];
+            start[row] = start[last];
+            end[row] = end[last];
+            color[row] = color[last];
+            status[row] = status[last];
+            records[row] = records[last];
+            rowById.put(records[row].getId(), row);
+        }
+        records[last] = null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= room.length) {
+            return;
+        }
+        int grown = Math.max(capacity, room.length * 2);
+        room = Arrays.copyOf(room, grown);
+        start = Arrays.copyOf(start, grown);
+        end = Arrays.copyOf(end, grown);
+        color = Arrays.copyOf(color, grown);
+        status = Arrays.copyOf(status, grown);
+        records = Arrays.copyOf(records, grown);
+        order = Arrays.copyOf(order, grown);
+    }
+
+    // Chèn dòng vào order (đang có size - 1 phần tử) theo start
+    private void link(int row) {
+        int count = size - 1;
+        int at = lowerBound(start[row], count);
+        System.arraycopy(order, at, order, at + 1, count - at);
+        order[at] = row;
+    }
+
+    // Gỡ dòng khỏi order (đang có size phần tử), gọi trước khi start của dòng đổi
+    private void unlink(int row) {
+        int at = positionOf(row, size);
+        System.arraycopy(order, at + 1, order, at, size - at - 1);
+    }
+
+    private int positionOf(int row, int count) {
+        int at = lowerBound(start[row], count);
+        while (order[at] != row) {
+            at++;
+        }
+        return at;
+    }
+
+    // Vị trí đầu tiên trong count phần tử đầu của order có start >= value
+    private int lowerBound(long value, int count) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (start[order[mid]] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Con trỏ flyweight: một đối tượng cho cả lượt duyệt, các getter đọc dòng hiện tại.
+     * <pre>
+     * for (BookingTable.Cursor c = table.cursor(from, to); c.next(); ) { ... c.start() ... }
+     * </pre>
+     */
+    public final class Cursor {
+        private final long from;
+        private final long to;
+        private int position;
+        private int row = -1;
+
+        private Cursor(long from, long to) {
+            this.from = from;
+            this.to = to;
+            long seek = from - maxSpan;
+            // from gần Long.MIN_VALUE thì phép trừ tràn số: duyệt từ đầu
+            this.position = seek > from ? 0 : lowerBound(seek, size);
+        }
+
+        // Duyệt theo thứ tự bắt đầu, dừng ở dòng đầu tiên bắt đầu từ to trở đi
+        public boolean next() {
+            while (position < size) {
+                row = order[position++];
+                if (start[row] >= to) {
+                    position = size;
+                    return false;
+                }
+                if (from < end[row]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int room() {
+            return room[row];
+        }
+
+        public String roomName() {
+            return rooms.value(room[row]);
+        }
+
+        public long start() {
+            return start[row];
+        }
+
+        public long end() {
+            return end[row];
+        }
+
+        public String color() {
+            return colors.value(color[row]);
+        }
+
+        public String status() {
+            return statuses.value(status[row]);
+        }
+
+        public String id() {
+            return records[row].getId();
+        }
+
+        // Bản ghi gốc, dùng cho các trường chữ hoặc khi cần truyền đi
+        public BookRoom record() {
+            return records[row];
+        }
+    }
+
+    // Cấp mã số liên tiếp cho các giá trị chuỗi, null cũng là một giá trị
+    private static final class Codes {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        int find(String value) {
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        String value(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
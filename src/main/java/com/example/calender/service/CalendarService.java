@@ -1,14 +1,19 @@
 package com.example.calender.service;
 
-import com.example.calender.config.JsonFileManager;
+import com.example.calender.config.EventStore;
+import com.example.calender.config.EventStores;
+import com.example.calender.config.StoreBackend;
+import com.example.calender.config.StoreSpec;
 import com.example.calender.models.EventSchedule;
-import com.example.calender.models.Events;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 public class CalendarService {
 
@@ -21,52 +26,69 @@ public class CalendarService {
         return instance;
     }
 
-    private final JsonFileManager jsonFileManager = JsonFileManager.getInstance("events.json");
+    private final EventStore<EventSchedule> store = EventStores.create(StoreSpec.<EventSchedule>builder()
+            .type(EventSchedule.class)
+            .startOf(EventSchedule::getStartDate)
+            .endOf(EventSchedule::getEndDate)
+            .jsonFile("events.json")
+            .table("events")
+            .defaultBackend(StoreBackend.JSON)
+            .build());
+
+    // Theo từng năm: phần tử thứ (dayOfYear - 1) là sự kiện đầu tiên phủ ngày đó, null nếu trống.
+    // Dựng khi năm được hỏi lần đầu, sau đó chỉ tính lại các ngày bị thêm/sửa/xóa
+    private final Map<Integer, EventSchedule[]> eventByDay = new HashMap<>();
+    // reloadCount của kho khi dựng eventByDay, đổi thì dựng lại từ đầu
+    private long indexedReloads;
+    private final ChangeBus<EventSchedule> changes = new ChangeBus<>();
 
     public List<EventSchedule> getAllEvents() {
-        jsonFileManager.loadFromFile(Events.class);
-        return jsonFileManager.getEventList(EventSchedule.class);
+        return store.loadAll();
+    }
+
+    // Kiểm tra events.json có bị sửa ngoài ứng dụng không, gọi một lần mỗi lần vẽ lại lịch
+    public void refresh() {
+        store.refresh();
     }
 
     public List<EventSchedule> getEventsByMonth(LocalDate startDate, LocalDate endDate) {
-        jsonFileManager.loadFromFile(Events.class);
-        return jsonFileManager.getEventList(EventSchedule.class).stream()
-                .filter(event -> !event.getEndDate().isBefore(startDate) && !event.getStartDate().isAfter(endDate))
-                .collect(Collectors.toList());
+        return store.query(startDate, endDate);
     }
 
     public EventSchedule getEventsByDate(LocalDate date) {
-        jsonFileManager.loadFromFile(Events.class);
-        return jsonFileManager.getEventList(EventSchedule.class).stream()
+        return store.query(date, date).stream()
                 .filter(event -> event.getStartDate().equals(date))
                 .findFirst()
                 .orElse(null);
     }
 
     public void addEvent(EventSchedule event) {
-        for (EventSchedule oldEvent : jsonFileManager.getEventList(EventSchedule.class)) {
+        // Chỉ cần xét các sự kiện giao với khoảng ngày của sự kiện mới
+        for (EventSchedule oldEvent : store.query(event.getStartDate(), event.getEndDate())) {
             if (validDuplicateDate(event, oldEvent))
                 return;
         }
-        jsonFileManager.getEventList(EventSchedule.class).add(event);
-        jsonFileManager.saveToFile();
+        if (store.upsert(null, event)) {
+            refreshDays(event.getStartDate(), event.getEndDate());
+            changes.publish(DataChange.added(event));
+        }
     }
 
     public boolean updateEvent(EventSchedule oldEvent, EventSchedule newEvent) {
-        List<EventSchedule> events = jsonFileManager.getEventList(EventSchedule.class);
-        int index = events.indexOf(oldEvent);
-        if (index != -1) {
-            // Kiểm tra trùng lặp ngày với các sự kiện khác bỏ qua index của sự kiện hiện
-            // tại
-            for (EventSchedule event : jsonFileManager.getEventList(EventSchedule.class)) {
-                if (event != oldEvent && validDuplicateDate(newEvent, event))
-                    return false;
-            }
-            events.set(index, newEvent);
-            jsonFileManager.saveToFile();
-            return true;
+        // Kiểm tra trùng lặp ngày với các sự kiện khác bỏ qua sự kiện đang sửa
+        for (EventSchedule event : store.query(newEvent.getStartDate(), newEvent.getEndDate())) {
+            if (!Objects.equals(event.getId(), oldEvent.getId()) && validDuplicateDate(newEvent, event))
+                return false;
+        }
+        LocalDate oldStart = oldEvent.getStartDate();
+        LocalDate oldEnd = oldEvent.getEndDate();
+        boolean updated = store.upsert(oldEvent, newEvent);
+        if (updated) {
+            refreshDays(oldStart, oldEnd);
+            refreshDays(newEvent.getStartDate(), newEvent.getEndDate());
+            changes.publish(DataChange.updated(oldEvent, newEvent));
         }
-        return false;
+        return updated;
     }
 
     private static boolean validDuplicateDate(EventSchedule event, EventSchedule oldEvent) {
@@ -86,16 +108,76 @@ public class CalendarService {
     }
 
     public void deleteEvent(EventSchedule event) {
-        jsonFileManager.getEventList(EventSchedule.class).remove(event);
-        jsonFileManager.saveToFile();
+        if (store.delete(event)) {
+            refreshDays(event.getStartDate(), event.getEndDate());
+            changes.publish(DataChange.removed(event));
+        }
+    }
+
+    // Nhận các thay đổi sự kiện sau khi mảng theo ngày đã tính lại, gọi trên luồng vừa sửa
+    public void addChangeListener(Consumer<DataChange<EventSchedule>> listener) {
+        changes.subscribe(listener);
+    }
+
+    public void removeChangeListener(Consumer<DataChange<EventSchedule>> listener) {
+        changes.unsubscribe(listener);
     }
 
     public boolean isDateInEvent(LocalDate date) {
-        for (EventSchedule event : jsonFileManager.getEventList(EventSchedule.class)) {
-            if (!date.isBefore(event.getStartDate()) && !date.isAfter(event.getEndDate())) {
-                return true;
+        return getEventCovering(date) != null;
+    }
+
+    /**
+     * Sự kiện phủ ngày {@code date} (sự kiện đứng trước trong dữ liệu nếu có nhiều), null nếu ngày trống.
+     * Tra mảng theo ngày của năm nên O(1) sau lần dựng đầu tiên.
+     */
+    public synchronized EventSchedule getEventCovering(LocalDate date) {
+        long reloads = store.reloadCount();
+        if (reloads != indexedReloads) {
+            // File bị sửa ngoài ứng dụng
+            eventByDay.clear();
+            indexedReloads = reloads;
+        }
+        EventSchedule[] days = eventByDay.get(date.getYear());
+        if (days == null) {
+            days = new EventSchedule[date.lengthOfYear()];
+            fillDays(days, LocalDate.of(date.getYear(), 1, 1), LocalDate.of(date.getYear(), 12, 31));
+            eventByDay.put(date.getYear(), days);
+        }
+        return days[date.getDayOfYear() - 1];
+    }
+
+    // Tính lại các ngày trong [from, to] của những năm đã dựng
+    private synchronized void refreshDays(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            eventByDay.clear();
+            return;
+        }
+        for (int year = from.getYear(); year <= to.getYear(); year++) {
+            EventSchedule[] days = eventByDay.get(year);
+            if (days == null) {
+                continue;
+            }
+            LocalDate start = year == from.getYear() ? from : LocalDate.of(year, 1, 1);
+            LocalDate end = year == to.getYear() ? to : LocalDate.of(year, 12, 31);
+            for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+                days[day.getDayOfYear() - 1] = null;
+            }
+            fillDays(days, start, end);
+        }
+    }
+
+    // Điền các ô trống trong [from, to] (cùng một năm), sự kiện đứng trước được giữ
+    private void fillDays(EventSchedule[] days, LocalDate from, LocalDate to) {
+        for (EventSchedule event : store.query(from, to)) {
+            LocalDate start = event.getStartDate().isBefore(from) ? from : event.getStartDate();
+            LocalDate end = event.getEndDate().isAfter(to) ? to : event.getEndDate();
+            for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+                int index = day.getDayOfYear() - 1;
+                if (days[index] == null) {
+                    days[index] = event;
+                }
             }
         }
-        return false;
     }
-}
\ No newline at end of file
+}
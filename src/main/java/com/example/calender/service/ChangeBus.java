@@ -0,0 +1,35 @@
+package com.example.calender.service;
+
+import com.example.calender.models.Identifiable;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Danh sách listener của một service. Thay đổi được phát đồng bộ trên luồng vừa sửa dữ liệu,
+ * sau khi kho và các chỉ mục đã cập nhật, nên listener đọc lại service sẽ thấy dữ liệu mới.
+ */
+class ChangeBus<T extends Identifiable> {
+
+    private final CopyOnWriteArrayList<Consumer<DataChange<T>>> listeners = new CopyOnWriteArrayList<>();
+
+    void subscribe(Consumer<DataChange<T>> listener) {
+        // Đăng ký lại cùng một listener không làm nó nhận hai lần
+        listeners.addIfAbsent(listener);
+    }
+
+    void unsubscribe(Consumer<DataChange<T>> listener) {
+        listeners.remove(listener);
+    }
+
+    void publish(DataChange<T> change) {
+        for (Consumer<DataChange<T>> listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                // Lỗi ở một view không được làm hỏng thao tác sửa đã thành công
+                System.err.println("Lỗi khi xử lý thay đổi " + change.getType() + " " + change.getId() + ": " + e);
+            }
+        }
+    }
+}
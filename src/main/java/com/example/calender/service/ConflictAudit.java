@@ -0,0 +1,133 @@
+package com.example.calender.service;
+
+import com.example.calender.models.BookRoom;
+import com.example.calender.models.ConflictGroup;
+
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Kiểm tra chồng lấn trên toàn bộ dữ liệu đặt phòng, không dựa vào các chỉ mục đang dùng.
+ * Lượt đặt được chia theo phòng; mỗi phòng sắp theo thời điểm bắt đầu rồi quét một lượt,
+ * các lượt đặt nối tiếp nhau chồng lấn (bắt đầu trước điểm kết thúc xa nhất của nhóm) gộp thành một nhóm.
+ * Các phòng được chia nhỏ và quét song song trên {@link ForkJoinPool}.
+ * <p>
+ * Giống kiểm tra khi sửa ({@code isValidTime}), các lượt đặt trùng nhau của cùng một email không tính
+ * là xung đột: nhóm chỉ được báo khi có ít nhất hai email khác nhau.
+ */
+class ConflictAudit {
+
+    // Số phòng tối đa một tác vụ quét trực tiếp, nhiều hơn thì chia đôi
+    private static final int ROOMS_PER_TASK = 16;
+
+    private final ForkJoinPool pool;
+
+    ConflictAudit(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    List<ConflictGroup> audit(Collection<BookRoom> bookings) {
+        Map<String, List<BookRoom>> byRoom = new HashMap<>();
+        for (BookRoom bookRoom : bookings) {
+            if (bookRoom.getRoomName() != null) {
+                byRoom.computeIfAbsent(bookRoom.getRoomName(), room -> new ArrayList<>()).add(bookRoom);
+            }
+        }
+        List<List<BookRoom>> rooms = new ArrayList<>(byRoom.values());
+        List<ConflictGroup> groups = pool.invoke(new AuditTask(rooms, 0, rooms.size()));
+        groups.sort(Comparator.comparing(ConflictGroup::getRoomName)
+                .thenComparingLong(ConflictGroup::getStartEpochMinute));
+        return groups;
+    }
+
+    private static final class AuditTask extends RecursiveTask<List<ConflictGroup>> {
+        private static final long serialVersionUID = 1L;
+        private final List<List<BookRoom>> rooms;
+        private final int from;
+        private final int to;
+
+        AuditTask(List<List<BookRoom>> rooms, int from, int to) {
+            this.rooms = rooms;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<ConflictGroup> compute() {
+            if (to - from <= ROOMS_PER_TASK) {
+                List<ConflictGroup> groups = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    sweep(rooms.get(i), groups);
+                }
+                return groups;
+            }
+            int middle = (from + to) >>> 1;
+            AuditTask left = new AuditTask(rooms, from, middle);
+            left.fork();
+            List<ConflictGroup> groups = new AuditTask(rooms, middle, to).compute();
+            groups.addAll(left.join());
+            return groups;
+        }
+    }
+
+    private static void sweep(List<BookRoom> roomBookings, List<ConflictGroup> groups) {
+        int count = roomBookings.size();
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        Integer[] order = new Integer[count];
+        int valid = 0;
+        for (BookRoom bookRoom : roomBookings) {
+            try {
+                starts[valid] = bookRoom.getStartEpochMinute();
+                ends[valid] = bookRoom.getEndEpochMinute();
+            } catch (DateTimeParseException | NullPointerException e) {
+                System.err.println("Invalid date/time format for booking: " + bookRoom.getId());
+                continue;
+            }
+            order[valid] = valid;
+            roomBookings.set(valid++, bookRoom);
+        }
+        if (valid < 2) {
+            return;
+        }
+        Arrays.sort(order, 0, valid, (a, b) -> Long.compare(starts[a], starts[b]));
+
+        int groupStart = 0;
+        long groupEnd = ends[order[0]];
+        for (int i = 1; i <= valid; i++) {
+            if (i < valid && starts[order[i]] < groupEnd) {
+                groupEnd = Math.max(groupEnd, ends[order[i]]);
+                continue;
+            }
+            if (i - groupStart > 1) {
+                report(roomBookings, order, groupStart, i, starts[order[groupStart]], groupEnd, groups);
+            }
+            if (i < valid) {
+                groupStart = i;
+                groupEnd = ends[order[i]];
+            }
+        }
+    }
+
+    private static void report(List<BookRoom> roomBookings, Integer[] order, int from, int to,
+                               long start, long end, List<ConflictGroup> groups) {
+        List<BookRoom> members = new ArrayList<>(to - from);
+        Set<String> emails = new HashSet<>();
+        for (int i = from; i < to; i++) {
+            BookRoom bookRoom = roomBookings.get(order[i]);
+            members.add(bookRoom);
+            emails.add(bookRoom.getEmail());
+        }
+        if (emails.size() < 2) {
+            return;
+        }
+        groups.add(ConflictGroup.builder()
+                .roomName(members.get(0).getRoomName())
+                .startEpochMinute(start)
+                .endEpochMinute(end)
+                .bookings(members)
+                .build());
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.calender.service;
+
+import com.example.calender.models.Identifiable;
+import lombok.Getter;
+
+/**
+ * Một thay đổi đã được kho ghi nhận, do service phát cho các view đang theo dõi.
+ * ADDED chỉ có {@code current}, REMOVED chỉ có {@code previous}, UPDATED có cả hai và cùng id.
+ */
+@Getter
+public final class DataChange<T extends Identifiable> {
+
+    public enum Type {
+        ADDED, UPDATED, REMOVED
+    }
+
+    private final Type type;
+    private final String id;
+    private final T previous;
+    private final T current;
+
+    private DataChange(Type type, String id, T previous, T current) {
+        this.type = type;
+        this.id = id;
+        this.previous = previous;
+        this.current = current;
+    }
+
+    public static <T extends Identifiable> DataChange<T> added(T current) {
+        return new DataChange<>(Type.ADDED, current.getId(), null, current);
+    }
+
+    public static <T extends Identifiable> DataChange<T> updated(T previous, T current) {
+        return new DataChange<>(Type.UPDATED, current.getId(), previous, current);
+    }
+
+    public static <T extends Identifiable> DataChange<T> removed(T previous) {
+        return new DataChange<>(Type.REMOVED, previous.getId(), previous, null);
+    }
+}
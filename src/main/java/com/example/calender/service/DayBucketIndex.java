@@ -0,0 +1,88 @@
+package com.example.calender.service;
+
+import com.example.calender.models.Identifiable;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Chỉ mục theo ngày: mỗi ngày một nhóm bản ghi, bản ghi kéo dài nhiều ngày có mặt ở mọi ngày
+ * nó đi qua. Truy vấn theo khoảng ngày chỉ duyệt {@link NavigableMap#subMap} của các ngày đó.
+ * Được nạp dần theo tháng hoặc dựng một lần từ toàn bộ dữ liệu, sau đó cập nhật theo từng thay đổi đi qua service.
+ */
+class DayBucketIndex<T extends Identifiable> {
+
+    private final Function<T, LocalDate> startOf;
+    private final Function<T, LocalDate> endOf;
+    private final NavigableMap<LocalDate, Map<String, T>> days = new TreeMap<>();
+    // Khoảng ngày đã đưa vào chỉ mục theo id, để gỡ đúng các ngày cũ khi sửa/xóa
+    private final Map<String, LocalDate[]> spans = new HashMap<>();
+
+    DayBucketIndex(Function<T, LocalDate> startOf, Function<T, LocalDate> endOf) {
+        this.startOf = startOf;
+        this.endOf = endOf;
+    }
+
+    synchronized void rebuild(Collection<T> records) {
+        days.clear();
+        spans.clear();
+        for (T record : records) {
+            add(record);
+        }
+    }
+
+    synchronized void add(T record) {
+        if (record.getId() == null) {
+            return;
+        }
+        remove(record.getId());
+        LocalDate start;
+        LocalDate end;
+        try {
+            start = startOf.apply(record);
+            end = endOf.apply(record);
+        } catch (RuntimeException e) {
+            // Ngày hỏng (sửa tay ngoài ứng dụng) thì bỏ qua bản ghi, không làm hỏng cả chỉ mục
+            System.err.println("Bỏ qua bản ghi " + record.getId() + ": " + e.getMessage());
+            return;
+        }
+        if (end.isBefore(start)) {
+            end = start;
+        }
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            days.computeIfAbsent(day, d -> new LinkedHashMap<>()).put(record.getId(), record);
+        }
+        spans.put(record.getId(), new LocalDate[]{start, end});
+    }
+
+    synchronized void remove(String id) {
+        LocalDate[] span = id == null ? null : spans.remove(id);
+        if (span == null) {
+            return;
+        }
+        for (LocalDate day = span[0]; !day.isAfter(span[1]); day = day.plusDays(1)) {
+            Map<String, T> bucket = days.get(day);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    days.remove(day);
+                }
+            }
+        }
+    }
+
+    synchronized List<T> onDay(LocalDate day) {
+        Map<String, T> bucket = days.get(day);
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket.values());
+    }
+
+    // Các bản ghi giao với khoảng [from, to], mỗi bản ghi một lần dù kéo dài nhiều ngày
+    synchronized List<T> inRange(LocalDate from, LocalDate to) {
+        Map<String, T> result = new LinkedHashMap<>();
+        for (Map<String, T> bucket : days.subMap(from, true, to, true).values()) {
+            result.putAll(bucket);
+        }
+        return new ArrayList<>(result.values());
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.calender.service;
+
+import com.example.calender.models.BookRoom;
+import com.example.calender.models.RecurrenceRule;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Các chuỗi lượt đặt lặp lại, mỗi chuỗi chỉ giữ một bản ghi. Lần diễn ra được sinh khi có người hỏi
+ * một khoảng ngày (chỉ các lần trong khoảng đó), kết quả theo khoảng được giữ trong bộ đệm LRU
+ * nhỏ vì các view hỏi lại đúng khoảng đang hiển thị sau mỗi lần vẽ. Mọi thay đổi chuỗi xóa bộ đệm.
+ * <p>
+ * Lần diễn ra là bản sao của chuỗi với ngày được dời, id dạng {@link RecurrenceRule#occurrenceId}
+ * và không mang quy tắc lặp.
+ */
+class RecurrenceIndex {
+
+    private static final int CACHED_WINDOWS = 16;
+    // Ngày cuối của chuỗi lặp vô hạn, đủ xa để mọi truy vấn theo khoảng đều giao
+    static final LocalDate OPEN_END = LocalDate.of(9999, 12, 31);
+
+    private final Map<String, BookRoom> series = new HashMap<>();
+    private final Map<String, List<BookRoom>> seriesByRoom = new HashMap<>();
+    private final Map<String, List<BookRoom>> windows = new LinkedHashMap<String, List<BookRoom>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<BookRoom>> eldest) {
+            return size() > CACHED_WINDOWS;
+        }
+    };
+
+    synchronized void add(BookRoom bookRoom) {
+        try {
+            bookRoom.getRecurrenceRule();
+        } catch (RuntimeException e) {
+            // Quy tắc hỏng (sửa tay ngoài ứng dụng) thì bỏ qua chuỗi, không làm hỏng cả chỉ mục
+            System.err.println("Bỏ qua chuỗi lặp " + bookRoom.getId() + ": " + e.getMessage());
+            return;
+        }
+        remove(bookRoom.getId());
+        series.put(bookRoom.getId(), bookRoom);
+        seriesByRoom.computeIfAbsent(bookRoom.getRoomName(), room -> new ArrayList<>()).add(bookRoom);
+        windows.clear();
+    }
+
+    synchronized BookRoom remove(String id) {
+        BookRoom removed = series.remove(id);
+        if (removed != null) {
+            List<BookRoom> inRoom = seriesByRoom.get(removed.getRoomName());
+            inRoom.remove(removed);
+            if (inRoom.isEmpty()) {
+                seriesByRoom.remove(removed.getRoomName());
+            }
+            windows.clear();
+        }
+        return removed;
+    }
+
+    synchronized BookRoom get(String id) {
+        return series.get(id);
+    }
+
+    synchronized List<BookRoom> all() {
+        return new ArrayList<>(series.values());
+    }
+
+    // Các lần diễn ra giao với [from, to] của mọi chuỗi, dùng lại kết quả nếu khoảng vừa được hỏi
+    synchronized List<BookRoom> inRange(LocalDate from, LocalDate to) {
+        if (series.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String key = from + "/" + to;
+        List<BookRoom> occurrences = windows.get(key);
+        if (occurrences == null) {
+            List<BookRoom> expanded = new ArrayList<>();
+            for (BookRoom bookRoom : series.values()) {
+                expanded.addAll(expand(bookRoom, from, to));
+            }
+            occurrences = Collections.unmodifiableList(expanded);
+            windows.put(key, occurrences);
+        }
+        return occurrences;
+    }
+
+    // Các lần diễn ra của phòng giao với [start, end) epoch-minute, theo thứ tự bắt đầu
+    synchronized List<BookRoom> overlapping(String roomName, long start, long end) {
+        List<BookRoom> inRoom = seriesByRoom.get(roomName);
+        if (inRoom == null || start >= end) {
+            return Collections.emptyList();
+        }
+        LocalDate from = LocalDate.ofEpochDay(Math.floorDiv(start, RoomOccupancy.MINUTES_PER_DAY));
+        LocalDate to = LocalDate.ofEpochDay(Math.floorDiv(end - 1, RoomOccupancy.MINUTES_PER_DAY));
+        List<BookRoom> result = new ArrayList<>();
+        for (BookRoom bookRoom : inRoom) {
+            for (BookRoom occurrence : expand(bookRoom, from, to)) {
+                if (occurrence.getStartEpochMinute() < end && start < occurrence.getEndEpochMinute()) {
+                    result.add(occurrence);
+                }
+            }
+        }
+        if (inRoom.size() > 1) {
+            result.sort((a, b) -> Long.compare(a.getStartEpochMinute(), b.getStartEpochMinute()));
+        }
+        return result;
+    }
+
+    // Ngày bắt đầu lớn nhất trong các chuỗi của phòng, dùng làm mốc kiểm tra chuỗi lặp vô hạn
+    synchronized LocalDate latestStart(String roomName) {
+        LocalDate latest = null;
+        for (BookRoom bookRoom : seriesByRoom.getOrDefault(roomName, Collections.emptyList())) {
+            if (latest == null || bookRoom.getStartDay().isAfter(latest)) {
+                latest = bookRoom.getStartDay();
+            }
+        }
+        return latest;
+    }
+
+    // Các lần diễn ra của một chuỗi giao với [from, to]
+    static List<BookRoom> expand(BookRoom seriesRecord, LocalDate from, LocalDate to) {
+        RecurrenceRule rule = seriesRecord.getRecurrenceRule();
+        List<BookRoom> result = new ArrayList<>();
+        if (rule == null) {
+            return result;
+        }
+        // Lần bắt đầu trước from vẫn giao nếu kéo dài qua nhiều ngày
+        long span = spanDays(seriesRecord);
+        rule.forEachStart(seriesRecord.getStartDay(), from.minusDays(span), to,
+                start -> result.add(occurrence(seriesRecord, start, span)));
+        return result;
+    }
+
+    static BookRoom occurrence(BookRoom seriesRecord, LocalDate start, long spanDays) {
+        return seriesRecord.toBuilder()
+                .id(RecurrenceRule.occurrenceId(seriesRecord.getId(), start))
+                .startDate(start.toString())
+                .endDate(start.plusDays(spanDays).toString())
+                .recurrence(null)
+                .build();
+    }
+
+    /**
+     * Ngày cuối cùng bản ghi phủ: lượt đặt thường là ngày kết thúc, chuỗi lặp là ngày kết thúc của
+     * lần diễn ra cuối ({@link #OPEN_END} nếu chuỗi vô hạn). Dùng làm endOf của kho để truy vấn theo
+     * khoảng trả về cả chuỗi bắt đầu từ trước khoảng đó.
+     */
+    static LocalDate lastDay(BookRoom bookRoom) {
+        LocalDate end = bookRoom.getEndDay();
+        RecurrenceRule rule = bookRoom.getRecurrenceRule();
+        if (rule == null) {
+            return end;
+        }
+        LocalDate lastStart = rule.lastStart(bookRoom.getStartDay());
+        if (lastStart == null) {
+            return OPEN_END;
+        }
+        LocalDate lastEnd = lastStart.plusDays(spanDays(bookRoom));
+        return lastEnd.isAfter(end) ? lastEnd : end;
+    }
+
+    static long spanDays(BookRoom seriesRecord) {
+        return Math.max(0, ChronoUnit.DAYS.between(seriesRecord.getStartDay(), seriesRecord.getEndDay()));
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.calender.service;
+
+import com.example.calender.models.BookRoom;
+import com.example.calender.models.PeriodUsage;
+import com.example.calender.models.RoomUsage;
+import com.example.calender.models.UtilizationReport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Báo cáo sử dụng phòng: giờ đã đặt theo phòng và theo kỳ (ngày/tuần/tháng), cao điểm,
+ * tỉ lệ sử dụng và phân theo trạng thái approved/pending/rejected.
+ * <p>
+ * Số liệu lấy từ {@link UsageRollup}: tháng được nạp từ {@link TimeLineByDayService} ở lần đầu cần tới,
+ * sau đó cập nhật theo các thay đổi service phát ra. Rollup chỉ được đọc/ghi khi giữ khóa của
+ * TimeLineByDayService: listener vốn chạy trong khóa đó (các hàm sửa của service là synchronized),
+ * còn {@link #report} lấy cùng khóa, nên không có thay đổi nào lọt giữa lúc nạp tháng và lúc cập nhật.
+ */
+public class ReportService {
+
+    private static ReportService instance;
+
+    private static final String CSV_HEADER = "period_start,period_end,room,booked_hours,bookings,"
+            + "approved_hours,pending_hours,rejected_hours,peak_concurrent,occupancy_rate";
+    // Dòng tổng của kỳ trong file CSV
+    private static final String ALL_ROOMS = "ALL";
+
+    public static ReportService getInstance() {
+        if (instance == null) {
+            instance = new ReportService();
+        }
+        return instance;
+    }
+
+    private final TimeLineByDayService bookingService;
+    private final UsageRollup rollup = new UsageRollup();
+
+    private ReportService() {
+        bookingService = TimeLineByDayService.getInstance();
+        bookingService.addChangeListener(this::onBookingChanged);
+    }
+
+    // Chạy trong khóa của TimeLineByDayService
+    private void onBookingChanged(DataChange<BookRoom> change) {
+        if (change.getPrevious() != null) {
+            applyChange(change.getPrevious(), -1);
+        }
+        if (change.getCurrent() != null) {
+            applyChange(change.getCurrent(), 1);
+        }
+    }
+
+    private void applyChange(BookRoom bookRoom, int sign) {
+        if (!bookRoom.isRecurring()) {
+            rollup.apply(bookRoom, sign, null);
+            return;
+        }
+        // Chuỗi lặp: chỉ các lần diễn ra trong các tháng đã nạp
+        for (YearMonth month : rollup.loadedMonths()) {
+            for (BookRoom occurrence : bookingService.expandRecurrence(bookRoom, month.atDay(1), month.atEndOfMonth())) {
+                rollup.apply(occurrence, sign, month);
+            }
+        }
+    }
+
+    /**
+     * Báo cáo trong [from, to] chia theo {@code granularity}; kỳ đầu/cuối bị cắt theo khoảng.
+     * Các kỳ được tính song song, kỳ không có ngày nào đổi từ lần báo cáo trước được dùng lại.
+     */
+    public UtilizationReport report(LocalDate from, LocalDate to, UtilizationReport.Granularity granularity) {
+        synchronized (bookingService) {
+            for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+                if (!rollup.isLoaded(month)) {
+                    rollup.load(month, bookingService.getEventsInRange(month.atDay(1), month.atEndOfMonth()));
+                }
+            }
+            int roomCount = rollup.roomCount();
+            List<PeriodUsage> periods = periodBounds(from, to, granularity).parallelStream()
+                    .map(bounds -> usage(bounds[0], bounds[1], roomCount))
+                    .collect(Collectors.toList());
+            return UtilizationReport.builder()
+                    .from(from)
+                    .to(to)
+                    .granularity(granularity)
+                    .roomCount(roomCount)
+                    .periods(periods)
+                    .build();
+        }
+    }
+
+    private PeriodUsage usage(LocalDate start, LocalDate end, int roomCount) {
+        UsageRollup.Period period = rollup.period(start, end);
+        long[] stats = period.stats;
+        List<RoomUsage> rooms = new ArrayList<>();
+        long[] total = new long[UsageRollup.FIELDS];
+        for (int room = 0; room * UsageRollup.FIELDS < stats.length; room++) {
+            int base = room * UsageRollup.FIELDS;
+            if (stats[base + UsageRollup.MINUTES] == 0 && stats[base + UsageRollup.BOOKINGS] == 0) {
+                continue;
+            }
+            for (int field = 0; field < UsageRollup.FIELDS; field++) {
+                total[field] += stats[base + field];
+            }
+            rooms.add(RoomUsage.builder()
+                    .roomName(rollup.roomName(room))
+                    .bookedMinutes(stats[base + UsageRollup.MINUTES])
+                    .bookings(stats[base + UsageRollup.BOOKINGS])
+                    .approvedMinutes(stats[base + UsageRollup.APPROVED])
+                    .pendingMinutes(stats[base + UsageRollup.PENDING])
+                    .rejectedMinutes(stats[base + UsageRollup.REJECTED])
+                    .build());
+        }
+        rooms.sort(Comparator.comparing(RoomUsage::getRoomName));
+        long periodMinutes = (ChronoUnit.DAYS.between(start, end) + 1) * RoomOccupancy.MINUTES_PER_DAY;
+        return PeriodUsage.builder()
+                .periodStart(start)
+                .periodEnd(end)
+                .bookedMinutes(total[UsageRollup.MINUTES])
+                .bookings(total[UsageRollup.BOOKINGS])
+                .approvedMinutes(total[UsageRollup.APPROVED])
+                .pendingMinutes(total[UsageRollup.PENDING])
+                .rejectedMinutes(total[UsageRollup.REJECTED])
+                .peakConcurrent(period.peak)
+                .occupancyRate(roomCount == 0 ? 0 : (double) total[UsageRollup.MINUTES] / (periodMinutes * roomCount))
+                .rooms(rooms)
+                .build();
+    }
+
+    // Các kỳ [đầu, cuối] phủ [from, to]
+    private static List<LocalDate[]> periodBounds(LocalDate from, LocalDate to,
+                                                  UtilizationReport.Granularity granularity) {
+        List<LocalDate[]> bounds = new ArrayList<>();
+        LocalDate start = from;
+        while (!start.isAfter(to)) {
+            LocalDate end;
+            switch (granularity) {
+                case DAY:
+                    end = start;
+                    break;
+                case WEEK:
+                    end = start.plusDays(DayOfWeek.SUNDAY.getValue() - start.getDayOfWeek().getValue());
+                    break;
+                default:
+                    end = start.withDayOfMonth(start.lengthOfMonth());
+                    break;
+            }
+            if (end.isAfter(to)) {
+                end = to;
+            }
+            bounds.add(new LocalDate[]{start, end});
+            start = end.plusDays(1);
+        }
+        return bounds;
+    }
+
+    // Mỗi kỳ một dòng tổng (room = ALL) rồi các dòng theo phòng
+    public static void writeCsv(UtilizationReport report, Writer out) throws IOException {
+        out.write(CSV_HEADER);
+        out.write('\n');
+        for (PeriodUsage period : report.getPeriods()) {
+            writeRow(out, period.getPeriodStart(), period.getPeriodEnd(), ALL_ROOMS, period.getBookedMinutes(),
+                    period.getBookings(), period.getApprovedMinutes(), period.getPendingMinutes(),
+                    period.getRejectedMinutes());
+            out.write(',');
+            out.write(Integer.toString(period.getPeakConcurrent()));
+            out.write(',');
+            out.write(String.format(Locale.ROOT, "%.4f", period.getOccupancyRate()));
+            out.write('\n');
+            for (RoomUsage room : period.getRooms()) {
+                writeRow(out, period.getPeriodStart(), period.getPeriodEnd(), room.getRoomName(),
+                        room.getBookedMinutes(), room.getBookings(), room.getApprovedMinutes(),
+                        room.getPendingMinutes(), room.getRejectedMinutes());
+                out.write(",,\n");
+            }
+        }
+    }
+
+    public static void exportCsv(UtilizationReport report, Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeCsv(report, out);
+        }
+    }
+
+    private static void writeRow(Writer out, LocalDate start, LocalDate end, String room, long minutes,
+                                 long bookings, long approved, long pending, long rejected) throws IOException {
+        out.write(start.toString());
+        out.write(',');
+        out.write(end.toString());
+        out.write(',');
+        out.write(csvField(room));
+        out.write(',');
+        out.write(hours(minutes));
+        out.write(',');
+        out.write(Long.toString(bookings));
+        out.write(',');
+        out.write(hours(approved));
+        out.write(',');
+        out.write(hours(pending));
+        out.write(',');
+        out.write(hours(rejected));
+    }
+
+    private static String hours(long minutes) {
+        return String.format(Locale.ROOT, "%.2f", minutes / 60.0);
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
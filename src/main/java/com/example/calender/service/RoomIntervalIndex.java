@@ -0,0 +1,121 @@
+package com.example.calender.service;
+
+import com.example.calender.models.BookRoom;
+import com.example.calender.utils.IntervalTree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Chỉ mục khoảng thời gian theo phòng: mỗi phòng một {@link IntervalTree} theo epoch-minute
+ * [bắt đầu, kết thúc). Được nạp dần theo tháng, sau đó cập nhật theo từng thay đổi
+ * đi qua {@link TimeLineByDayService}. Các lượt đọc dùng chung khóa đọc nên tìm song song
+ * trên nhiều phòng được.
+ */
+class RoomIntervalIndex {
+
+    private final Map<String, IntervalTree<String, BookRoom>> rooms = new HashMap<>();
+    // Khoảng đã đưa vào chỉ mục theo id; giữ riêng để gỡ đúng khoảng cũ kể cả khi bản ghi bị sửa tại chỗ
+    private final Map<String, Slot> indexed = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    void add(BookRoom bookRoom) {
+        lock.writeLock().lock();
+        try {
+            insert(bookRoom);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Trả về khoảng vừa gỡ, null nếu id chưa có trong chỉ mục
+    Slot remove(String id) {
+        lock.writeLock().lock();
+        try {
+            return delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<BookRoom> findOverlapping(String roomName, long startEpochMinute, long endEpochMinute) {
+        List<BookRoom> result = new ArrayList<>();
+        forEachOverlapping(roomName, startEpochMinute, endEpochMinute, result::add);
+        return result;
+    }
+
+    // Duyệt các lượt đặt của phòng giao với [start, end) theo thứ tự thời điểm bắt đầu tăng dần
+    void forEachOverlapping(String roomName, long startEpochMinute, long endEpochMinute,
+                            Consumer<? super BookRoom> consumer) {
+        lock.readLock().lock();
+        try {
+            IntervalTree<String, BookRoom> tree = rooms.get(roomName);
+            if (tree != null) {
+                tree.forEachOverlapping(startEpochMinute, endEpochMinute, consumer);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Điểm kết thúc muộn nhất của các lượt đặt trong phòng, Long.MIN_VALUE nếu phòng chưa có lượt đặt
+    long lastEnd(String roomName) {
+        lock.readLock().lock();
+        try {
+            IntervalTree<String, BookRoom> tree = rooms.get(roomName);
+            return tree == null ? Long.MIN_VALUE : tree.maxEnd();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(BookRoom bookRoom) {
+        if (bookRoom.getId() == null || bookRoom.getRoomName() == null) {
+            return;
+        }
+        delete(bookRoom.getId());
+        Slot slot;
+        try {
+            slot = new Slot(bookRoom.getRoomName(), bookRoom.getStartEpochMinute(), bookRoom.getEndEpochMinute());
+        } catch (RuntimeException e) {
+            // Ngày giờ hỏng (sửa tay ngoài ứng dụng) thì bỏ qua lượt đặt, không làm hỏng cả chỉ mục
+            System.err.println("Bỏ qua lượt đặt " + bookRoom.getId() + ": " + e.getMessage());
+            return;
+        }
+        rooms.computeIfAbsent(slot.room, room -> new IntervalTree<>())
+                .insert(slot.start, slot.end, bookRoom.getId(), bookRoom);
+        indexed.put(bookRoom.getId(), slot);
+    }
+
+    private Slot delete(String id) {
+        Slot old = id == null ? null : indexed.remove(id);
+        if (old == null) {
+            return null;
+        }
+        IntervalTree<String, BookRoom> tree = rooms.get(old.room);
+        if (tree != null) {
+            tree.remove(old.start, old.end, id);
+            if (tree.isEmpty()) {
+                rooms.remove(old.room);
+            }
+        }
+        return old;
+    }
+
+    static final class Slot {
+        final String room;
+        final long start;
+        final long end;
+
+        Slot(String room, long start, long end) {
+            this.room = room;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
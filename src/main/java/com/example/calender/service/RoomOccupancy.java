@@ -0,0 +1,162 @@
+package com.example.calender.service;
+
+import com.example.calender.models.BookRoom;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bitmap chiếm dụng theo phút: mỗi phòng mỗi ngày 1440 bit (23 long), bit m bật nghĩa là phút
+ * [m, m+1) của ngày đó đã có người đặt. Dữ liệu được dựng theo từng tháng ở lần hỏi đầu tiên,
+ * kiểm tra một khoảng trong ngày chỉ cần duyệt các word mà khoảng đó đi qua.
+ * <p>
+ * Các lượt đặt có thể chồng nhau (cùng người đặt) nên khi gỡ một lượt đặt, các ngày bị ảnh hưởng
+ * được tính lại từ {@link RoomIntervalIndex} thay vì tắt bit.
+ */
+class RoomOccupancy {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int WORDS_PER_DAY = (MINUTES_PER_DAY + 63) / 64;
+
+    private final DayBucketIndex<BookRoom> dayIndex;
+    private final RoomIntervalIndex roomIndex;
+    // Tháng -> phòng -> bitmap theo ngày trong tháng, ngày chưa có lượt đặt nào là null
+    private final Map<YearMonth, Map<String, long[][]>> months = new HashMap<>();
+
+    RoomOccupancy(DayBucketIndex<BookRoom> dayIndex, RoomIntervalIndex roomIndex) {
+        this.dayIndex = dayIndex;
+        this.roomIndex = roomIndex;
+    }
+
+    // Phòng trống trong cả khoảng [start, end) epoch-minute
+    synchronized boolean isFree(String roomName, long start, long end) {
+        for (long day = Math.floorDiv(start, MINUTES_PER_DAY); day * MINUTES_PER_DAY < end; day++) {
+            long dayStart = day * MINUTES_PER_DAY;
+            long[] bits = dayBits(roomName, day, false);
+            if (bits != null && anySet(bits, (int) (Math.max(start, dayStart) - dayStart),
+                    (int) (Math.min(end, dayStart + MINUTES_PER_DAY) - dayStart))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    synchronized void add(BookRoom bookRoom) {
+        if (bookRoom.getRoomName() == null) {
+            return;
+        }
+        long start = bookRoom.getStartEpochMinute();
+        long end = bookRoom.getEndEpochMinute();
+        for (long day = Math.floorDiv(start, MINUTES_PER_DAY); day * MINUTES_PER_DAY < end; day++) {
+            if (!months.containsKey(monthOf(day))) {
+                // Tháng chưa dựng sẽ đọc lượt đặt này khi được hỏi tới
+                continue;
+            }
+            long dayStart = day * MINUTES_PER_DAY;
+            setBits(dayBits(bookRoom.getRoomName(), day, true),
+                    (int) (Math.max(start, dayStart) - dayStart),
+                    (int) (Math.min(end, dayStart + MINUTES_PER_DAY) - dayStart));
+        }
+    }
+
+    // Tính lại các ngày của phòng mà khoảng [start, end) đi qua, gọi sau khi roomIndex đã gỡ lượt đặt
+    synchronized void refresh(String roomName, long start, long end) {
+        for (long day = Math.floorDiv(start, MINUTES_PER_DAY); day * MINUTES_PER_DAY < end; day++) {
+            Map<String, long[][]> rooms = months.get(monthOf(day));
+            long[][] days = rooms == null ? null : rooms.get(roomName);
+            if (days == null) {
+                continue;
+            }
+            int dayOfMonth = LocalDate.ofEpochDay(day).getDayOfMonth() - 1;
+            days[dayOfMonth] = null;
+            long dayStart = day * MINUTES_PER_DAY;
+            long dayEnd = dayStart + MINUTES_PER_DAY;
+            for (BookRoom bookRoom : roomIndex.findOverlapping(roomName, dayStart, dayEnd)) {
+                if (days[dayOfMonth] == null) {
+                    days[dayOfMonth] = new long[WORDS_PER_DAY];
+                }
+                setBits(days[dayOfMonth], (int) (Math.max(bookRoom.getStartEpochMinute(), dayStart) - dayStart),
+                        (int) (Math.min(bookRoom.getEndEpochMinute(), dayEnd) - dayStart));
+            }
+        }
+    }
+
+    private long[] dayBits(String roomName, long epochDay, boolean create) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        Map<String, long[][]> rooms = month(YearMonth.from(date));
+        long[][] days = rooms.get(roomName);
+        if (days == null) {
+            if (!create) {
+                return null;
+            }
+            days = new long[date.lengthOfMonth()][];
+            rooms.put(roomName, days);
+        }
+        int index = date.getDayOfMonth() - 1;
+        if (days[index] == null && create) {
+            days[index] = new long[WORDS_PER_DAY];
+        }
+        return days[index];
+    }
+
+    private Map<String, long[][]> month(YearMonth month) {
+        Map<String, long[][]> rooms = months.get(month);
+        if (rooms == null) {
+            rooms = new HashMap<>();
+            months.put(month, rooms);
+            for (BookRoom bookRoom : dayIndex.inRange(month.atDay(1), month.atEndOfMonth())) {
+                add(bookRoom);
+            }
+        }
+        return rooms;
+    }
+
+    private static YearMonth monthOf(long epochDay) {
+        return YearMonth.from(LocalDate.ofEpochDay(epochDay));
+    }
+
+    // Bật các bit [from, to)
+    static void setBits(long[] words, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+            return;
+        }
+        words[first] |= firstMask;
+        for (int i = first + 1; i < last; i++) {
+            words[i] = -1L;
+        }
+        words[last] |= lastMask;
+    }
+
+    // Có bit nào bật trong [from, to) không
+    static boolean anySet(long[] words, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            return (words[first] & firstMask & lastMask) != 0;
+        }
+        if ((words[first] & firstMask) != 0 || (words[last] & lastMask) != 0) {
+            return true;
+        }
+        for (int i = first + 1; i < last; i++) {
+            if (words[i] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.calender.service;
+
+import com.example.calender.models.BookRoom;
+import com.example.calender.models.EventSchedule;
+import com.example.calender.models.Events;
+import com.example.calender.models.Identifiable;
+import com.example.calender.models.SearchHit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Tìm kiếm toàn văn trên lượt đặt phòng (họ tên, email, số điện thoại, mục đích), sự kiện theo giờ và
+ * sự kiện lịch (tên, mô tả). Không phân biệt dấu và hoa thường, từ cuối hay từ giữa đều so theo tiền tố.
+ * <p>
+ * Chỉ mục dựng ở lần tìm đầu tiên rồi cập nhật theo thay đổi các service phát ra. Trong lúc dựng,
+ * thay đổi đến được giữ lại và áp lên chỉ mục vừa dựng (thêm/sửa/xóa theo id nên áp lại không sai).
+ * Việc dựng không giữ khóa của service này, để listener (chạy trong khóa của service phát) không
+ * phải chờ ngược.
+ */
+public class SearchService {
+
+    private static SearchService instance;
+
+    public static final int DEFAULT_LIMIT = 50;
+
+    // Mới nhất theo ngày trước, kết quả không có ngày đứng cuối
+    private static final Comparator<SearchHit> NEWEST_FIRST =
+            Comparator.comparing(SearchHit::getDate, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    public static SearchService getInstance() {
+        if (instance == null) {
+            instance = new SearchService();
+        }
+        return instance;
+    }
+
+    private final TimeLineByDayService bookingService = TimeLineByDayService.getInstance();
+    private final TimeLineByHoursService timeLineService = TimeLineByHoursService.getInstance();
+    private final CalendarService calendarService = CalendarService.getInstance();
+
+    private final Object buildLock = new Object();
+    private TextIndex<SearchHit> index;
+    // Thay đổi đến trong lúc đang dựng chỉ mục, null khi không dựng
+    private List<DataChange<? extends Identifiable>> pending;
+
+    private SearchService() {
+        bookingService.addChangeListener(this::onChanged);
+        timeLineService.addChangeListener(this::onChanged);
+        calendarService.addChangeListener(this::onChanged);
+    }
+
+    public List<SearchHit> search(String query) {
+        return search(query, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Tối đa {@code limit} kết quả chứa mọi từ của {@code query}, mới nhất theo ngày trước.
+     */
+    public List<SearchHit> search(String query, int limit) {
+        TextIndex<SearchHit> built = index();
+        synchronized (this) {
+            return built.search(query, limit, NEWEST_FIRST);
+        }
+    }
+
+    private synchronized void onChanged(DataChange<? extends Identifiable> change) {
+        if (index != null) {
+            apply(index, change);
+        } else if (pending != null) {
+            pending.add(change);
+        }
+    }
+
+    private TextIndex<SearchHit> index() {
+        synchronized (this) {
+            if (index != null) {
+                return index;
+            }
+        }
+        synchronized (buildLock) {
+            synchronized (this) {
+                if (index != null) {
+                    return index;
+                }
+                pending = new ArrayList<>();
+            }
+            TextIndex<SearchHit> built = new TextIndex<>();
+            for (BookRoom bookRoom : bookingService.getAllEvents()) {
+                put(built, bookRoom);
+            }
+            for (Events event : timeLineService.getAllEvents()) {
+                put(built, event);
+            }
+            for (EventSchedule event : calendarService.getAllEvents()) {
+                put(built, event);
+            }
+            synchronized (this) {
+                for (DataChange<? extends Identifiable> change : pending) {
+                    apply(built, change);
+                }
+                pending = null;
+                index = built;
+                return built;
+            }
+        }
+    }
+
+    private static void apply(TextIndex<SearchHit> index, DataChange<? extends Identifiable> change) {
+        if (change.getPrevious() != null) {
+            index.remove(key(change.getPrevious()));
+        }
+        if (change.getCurrent() != null) {
+            put(index, change.getCurrent());
+        }
+    }
+
+    private static void put(TextIndex<SearchHit> index, Identifiable record) {
+        if (record.getId() == null) {
+            return;
+        }
+        SearchHit hit = hit(record);
+        index.put(key(record), text(record), hit);
+    }
+
+    private static SearchHit.Kind kind(Identifiable record) {
+        if (record instanceof BookRoom) {
+            return SearchHit.Kind.BOOKING;
+        }
+        return record instanceof Events ? SearchHit.Kind.TIME_LINE_EVENT : SearchHit.Kind.SCHEDULE;
+    }
+
+    private static String key(Identifiable record) {
+        return kind(record).name() + ':' + record.getId();
+    }
+
+    // Văn bản được đánh chỉ mục của bản ghi
+    private static String text(Identifiable record) {
+        if (record instanceof BookRoom) {
+            BookRoom bookRoom = (BookRoom) record;
+            // Số điện thoại thêm bản chỉ có chữ số để tìm được cả khi gõ liền
+            return join(bookRoom.getFullName(), bookRoom.getEmail(), bookRoom.getPhoneNumber(),
+                    digits(bookRoom.getPhoneNumber()), bookRoom.getPurpose());
+        }
+        if (record instanceof Events) {
+            Events event = (Events) record;
+            return join(event.getName(), event.getDescription());
+        }
+        EventSchedule event = (EventSchedule) record;
+        return join(event.getName(), event.getDescription());
+    }
+
+    private static SearchHit hit(Identifiable record) {
+        SearchHit.SearchHitBuilder hit = SearchHit.builder()
+                .kind(kind(record))
+                .id(record.getId())
+                .record(record);
+        if (record instanceof BookRoom) {
+            BookRoom bookRoom = (BookRoom) record;
+            return hit.title(bookRoom.getFullName())
+                    .detail(join(bookRoom.getRoomName(), bookRoom.getPurpose()))
+                    .date(dateOf(bookRoom::getStartDay))
+                    .build();
+        }
+        if (record instanceof Events) {
+            Events event = (Events) record;
+            return hit.title(event.getName())
+                    .detail(event.getDescription())
+                    .date(dateOf(event::getDay))
+                    .build();
+        }
+        EventSchedule event = (EventSchedule) record;
+        return hit.title(event.getName())
+                .detail(event.getDescription())
+                .date(event.getStartDate())
+                .build();
+    }
+
+    // Ngày hỏng (sửa tay ngoài ứng dụng) không làm hỏng cả lần dựng chỉ mục: bản ghi vẫn tìm được, chỉ không có ngày
+    private static LocalDate dateOf(Supplier<LocalDate> date) {
+        try {
+            return date.get();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String join(String... parts) {
+        StringBuilder text = new StringBuilder();
+        for (String part : parts) {
+            if (part != null && !part.isEmpty()) {
+                if (text.length() > 0) {
+                    text.append(" - ");
+                }
+                text.append(part);
+            }
+        }
+        return text.toString();
+    }
+
+    private static String digits(String text) {
+        return text == null ? null : text.replaceAll("\\D", "");
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.calender.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Chỉ mục đảo ngược trên văn bản đã bỏ dấu tiếng Việt (đ → d) và viết thường.
+ * Từ được giữ trong TreeMap nên tìm theo tiền tố là một subMap; mỗi từ trỏ tới mảng số hiệu tài liệu
+ * tăng dần. Tài liệu mới luôn nhận số hiệu lớn hơn nên thêm chỉ là nối vào cuối mảng.
+ * <p>
+ * Mọi từ trong câu hỏi đều được so theo tiền tố và phải cùng có trong tài liệu. Chỉ từ có ít tài liệu
+ * nhất được mở rộng thành danh sách ứng viên, các từ còn lại được kiểm tra trên từ của từng ứng viên.
+ * Không tự đồng bộ.
+ */
+class TextIndex<T> {
+
+    // Số hiệu bị bỏ (do xóa/sửa) chiếm quá 1/COMPACT_RATIO tổng số thì đánh số lại toàn bộ
+    private static final int COMPACT_RATIO = 2;
+
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<String, Integer> docByKey = new HashMap<>();
+    private final List<Doc<T>> docs = new ArrayList<>();
+    private int removed;
+
+    private static final class Doc<T> {
+        final String key;
+        final T value;
+        final String[] terms;
+
+        Doc(String key, T value, String[] terms) {
+            this.key = key;
+            this.value = value;
+            this.terms = terms;
+        }
+
+        boolean hasPrefix(String prefix) {
+            for (String term : terms) {
+                if (term.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Số hiệu của tài liệu đã xóa vẫn nằm trong mảng tới lần đánh số lại, live là số còn hiệu lực
+    private static final class Postings {
+        final String term;
+        int[] ids = new int[2];
+        int size;
+        int live;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            live++;
+        }
+    }
+
+    int size() {
+        return docByKey.size();
+    }
+
+    // Thêm hoặc thay tài liệu có khóa key
+    void put(String key, String text, T value) {
+        remove(key);
+        Set<String> words = new LinkedHashSet<>();
+        tokens(text, words);
+        int id = docs.size();
+        String[] shared = new String[words.size()];
+        int i = 0;
+        for (String word : words) {
+            Postings postings = terms.get(word);
+            if (postings == null) {
+                postings = new Postings(word);
+                terms.put(word, postings);
+            }
+            postings.add(id);
+            // Dùng chung chuỗi của từ điển thay vì giữ bản sao theo từng tài liệu
+            shared[i++] = postings.term;
+        }
+        docs.add(new Doc<>(key, value, shared));
+        docByKey.put(key, id);
+    }
+
+    boolean remove(String key) {
+        Integer id = docByKey.remove(key);
+        if (id == null) {
+            return false;
+        }
+        // Chỉ đánh dấu, không dời mảng số hiệu của các từ phổ biến
+        for (String term : docs.get(id).terms) {
+            Postings postings = terms.get(term);
+            if (--postings.live == 0) {
+                terms.remove(term);
+            }
+        }
+        docs.set(id, null);
+        if (++removed * COMPACT_RATIO > docs.size() && removed > 1024) {
+            compact();
+        }
+        return true;
+    }
+
+    void clear() {
+        terms.clear();
+        docByKey.clear();
+        docs.clear();
+        removed = 0;
+    }
+
+    /**
+     * Tối đa {@code limit} tài liệu chứa mọi từ của câu hỏi (so theo tiền tố), xếp theo {@code order}.
+     * Mọi ứng viên đều được xét, heap chỉ giữ {@code limit} tài liệu đứng đầu nên cắt bớt không làm mất
+     * tài liệu đứng trước chỉ vì được thêm vào sau.
+     */
+    List<T> search(String query, int limit, Comparator<? super T> order) {
+        Set<String> words = new LinkedHashSet<>();
+        tokens(query, words);
+        List<T> result = new ArrayList<>();
+        if (words.isEmpty() || limit <= 0) {
+            return result;
+        }
+        // Từ ít tài liệu nhất sinh ứng viên
+        String narrowest = null;
+        long narrowestCount = Long.MAX_VALUE;
+        for (String word : words) {
+            long count = 0;
+            for (Postings postings : withPrefix(word)) {
+                count += postings.live;
+            }
+            if (count == 0) {
+                return result;
+            }
+            if (count < narrowestCount) {
+                narrowest = word;
+                narrowestCount = count;
+            }
+        }
+        words.remove(narrowest);
+        String[] others = words.toArray(new String[0]);
+        // Đỉnh heap là tài liệu đứng cuối trong số đang giữ
+        PriorityQueue<T> top = new PriorityQueue<>(Math.min(limit, 1024) + 1, order.reversed());
+        for (int id : candidates(narrowest, narrowestCount)) {
+            Doc<T> doc = docs.get(id);
+            if (doc != null && matchesAll(doc, others)) {
+                if (top.size() < limit) {
+                    top.add(doc.value);
+                } else if (order.compare(doc.value, top.peek()) < 0) {
+                    top.poll();
+                    top.add(doc.value);
+                }
+            }
+        }
+        result.addAll(top);
+        result.sort(order);
+        return result;
+    }
+
+    private Collection<Postings> withPrefix(String prefix) {
+        return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+    }
+
+    // Số hiệu tăng dần, không trùng, của các tài liệu có từ bắt đầu bằng prefix; có thể lẫn số hiệu đã xóa
+    private int[] candidates(String prefix, long count) {
+        Collection<Postings> matched = withPrefix(prefix);
+        if (matched.size() == 1) {
+            Postings postings = matched.iterator().next();
+            return Arrays.copyOf(postings.ids, postings.size);
+        }
+        if (count < docs.size() / 16) {
+            int total = 0;
+            for (Postings postings : matched) {
+                total += postings.size;
+            }
+            int[] ids = new int[total];
+            int n = 0;
+            for (Postings postings : matched) {
+                System.arraycopy(postings.ids, 0, ids, n, postings.size);
+                n += postings.size;
+            }
+            Arrays.sort(ids);
+            int distinct = 0;
+            for (int i = 0; i < n; i++) {
+                if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                    ids[distinct++] = ids[i];
+                }
+            }
+            return Arrays.copyOf(ids, distinct);
+        }
+        // Tiền tố ngắn phủ nhiều từ: gộp bằng bitset theo số hiệu
+        long[] bits = new long[(docs.size() + 63) >>> 6];
+        for (Postings postings : matched) {
+            for (int i = 0; i < postings.size; i++) {
+                bits[postings.ids[i] >>> 6] |= 1L << postings.ids[i];
+            }
+        }
+        int total = 0;
+        for (long word : bits) {
+            total += Long.bitCount(word);
+        }
+        int[] ids = new int[total];
+        int n = 0;
+        for (int w = 0; w < bits.length; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                ids[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return ids;
+    }
+
+    private static boolean matchesAll(Doc<?> doc, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (!doc.hasPrefix(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Đánh số lại các tài liệu còn lại theo thứ tự cũ
+    private void compact() {
+        List<Doc<T>> live = new ArrayList<>(docByKey.size());
+        for (Doc<T> doc : docs) {
+            if (doc != null) {
+                live.add(doc);
+            }
+        }
+        docs.clear();
+        docByKey.clear();
+        removed = 0;
+        for (Postings postings : terms.values()) {
+            postings.size = 0;
+            postings.live = 0;
+        }
+        for (Doc<T> doc : live) {
+            int id = docs.size();
+            for (String term : doc.terms) {
+                terms.get(term).add(id);
+            }
+            docs.add(doc);
+            docByKey.put(doc.key, id);
+        }
+    }
+
+    /**
+     * Tách văn bản thành các từ đã bỏ dấu, viết thường; ký tự không phải chữ/số là dấu ngăn cách.
+     */
+    static void tokens(String text, Collection<String> out) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean inWord = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                out.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    // "Thuyết trình Đà Nẵng" -> "thuyet trinh da nang"
+    static String fold(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            return text.toLowerCase(Locale.ROOT);
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (c == 'đ' || c == 'Đ') {
+                c = 'd';
+            }
+            folded.append(Character.toLowerCase(c));
+        }
+        return folded.toString();
+    }
+}
@@ -1,17 +1,41 @@
 package com.example.calender.service;
 
-import com.example.calender.config.JsonFileManager;
+import com.example.calender.config.EventStore;
+import com.example.calender.config.EventStores;
+import com.example.calender.config.StoreBackend;
+import com.example.calender.config.StoreChange;
+import com.example.calender.config.StoreSpec;
+import com.example.calender.models.BatchItemResult;
 import com.example.calender.models.BookRoom;
+import com.example.calender.models.ConflictGroup;
+import com.example.calender.models.FreeSlot;
+import com.example.calender.models.RecurrenceRule;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class TimeLineByDayService {
 
     private static TimeLineByDayService instance;
 
+    // Từ số phòng này trở lên, tìm khoảng trống chạy song song trên ForkJoinPool chung
+    private static final int PARALLEL_ROOM_THRESHOLD = 64;
+    // Chuỗi lặp vô hạn được kiểm tra trùng đến hết dữ liệu hiện có của phòng cộng thêm chừng này ngày
+    static final int OPEN_SERIES_CHECK_DAYS = 366;
+
     public static TimeLineByDayService getInstance() {
         if (instance == null) {
             instance = new TimeLineByDayService();
@@ -19,27 +43,83 @@ public class TimeLineByDayService {
         return instance;
     }
 
-    private final JsonFileManager jsonFileManager = JsonFileManager.getInstance("timeLineDay.json");
+    // Mặc định dữ liệu đặt phòng được chia theo tháng trong data/bookings/, timeLineDay.json chỉ dùng để chuyển đổi lần đầu.
+    // Chuỗi lặp phủ đến lần diễn ra cuối nên store.query của một tháng trả về cả chuỗi bắt đầu từ trước đó
+    private final EventStore<BookRoom> store = EventStores.create(StoreSpec.<BookRoom>builder()
+            .type(BookRoom.class)
+            .startOf(BookRoom::getStartDay)
+            .endOf(RecurrenceIndex::lastDay)
+            .jsonFile("timeLineDay.json")
+            .shardDirectory("bookings")
+            .table("time_line_day")
+            .defaultBackend(StoreBackend.SHARDED)
+            .build());
+
+    // Chỉ mục theo ngày, chỉ mục chồng lấn theo phòng và bảng theo cột, nạp dần theo từng tháng bằng store.query
+    // khi có truy vấn chạm tới tháng đó, rồi cập nhật theo từng thay đổi. Chuỗi lặp không nằm trong các chỉ mục
+    // này mà trong recurrences, các truy vấn bên dưới gộp thêm lần diễn ra của khoảng đang hỏi
+    private DayBucketIndex<BookRoom> dayIndex;
+    private RoomIntervalIndex roomIndex;
+    private BookingTable bookingTable;
+    private RoomOccupancy occupancy;
+    private RecurrenceIndex recurrences;
+    // Các tháng đã nạp vào chỉ mục; loadedAll khi đã nạp toàn bộ kho (kiểm tra chuỗi lặp vô hạn)
+    private final Set<YearMonth> loadedMonths = new HashSet<>();
+    private boolean loadedAll;
+    // reloadCount của kho lúc tạo các chỉ mục trên
+    private long indexedReloads;
+    private final ChangeBus<BookRoom> changes = new ChangeBus<>();
 
     public List<BookRoom> getEventsByDate(LocalDate date) {
-        jsonFileManager.loadFromFile(BookRoom.class);
-        return jsonFileManager.getEventList(BookRoom.class).stream()
-                .filter(bookRoom -> LocalDate.parse(bookRoom.getStartDate()).equals(date))
+        return bookingsInRange(date, date).stream()
+                .filter(bookRoom -> bookRoom.getStartDay().equals(date))
                 .collect(Collectors.toList());
     }
 
     public List<BookRoom> getAllEvents() {
-        jsonFileManager.loadFromFile(BookRoom.class);
-        return jsonFileManager.getEventList(BookRoom.class);
+        return store.loadAll();
+    }
+
+    // Kiểm tra dữ liệu có bị sửa ngoài ứng dụng không, gọi một lần mỗi lần làm mới view;
+    // nếu kho đã đọc lại thì các chỉ mục được dựng lại ở truy vấn kế tiếp
+    public void refresh() {
+        store.refresh();
+    }
+
+    // Các lượt đặt giao với khoảng [from, to], kể cả lượt bắt đầu trước from và các lần diễn ra của chuỗi lặp
+    public List<BookRoom> getEventsInRange(LocalDate from, LocalDate to) {
+        return bookingsInRange(from, to);
+    }
+
+    // Chỉ các lần diễn ra của chuỗi lặp giao với [from, to], sinh theo khoảng và được đệm lại
+    public synchronized List<BookRoom> getOccurrencesInRange(LocalDate from, LocalDate to) {
+        ensureLoaded(from, to);
+        return recurrences.inRange(from, to);
+    }
+
+    // Các lần diễn ra của một chuỗi lặp giao với [from, to]
+    public List<BookRoom> expandRecurrence(BookRoom series, LocalDate from, LocalDate to) {
+        return RecurrenceIndex.expand(series, from, to);
+    }
+
+    private synchronized List<BookRoom> bookingsInRange(LocalDate from, LocalDate to) {
+        ensureLoaded(from, to);
+        List<BookRoom> bookings = dayIndex.inRange(from, to);
+        List<BookRoom> occurrences = recurrences.inRange(from, to);
+        if (occurrences.isEmpty()) {
+            return bookings;
+        }
+        List<BookRoom> result = new ArrayList<>(bookings);
+        result.addAll(occurrences);
+        return result;
     }
 
     // lấy dữ liệu trong 3 ngày tính từ hôm này
     public List<BookRoom> getEventsByMonth(LocalDate monthStart) {
-        jsonFileManager.loadFromFile(BookRoom.class);
         LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
-        return jsonFileManager.getEventList(BookRoom.class).stream()
+        return bookingsInRange(monthStart, monthEnd).stream()
                 .filter(bookRoom -> {
-                    LocalDate bookRoomDate = LocalDate.parse(bookRoom.getStartDate());
+                    LocalDate bookRoomDate = bookRoom.getStartDay();
                     return (bookRoomDate.isAfter(monthStart.minusDays(1))
                             && bookRoomDate.isBefore(monthEnd.plusDays(1)));
                 })
@@ -47,46 +127,505 @@ public class TimeLineByDayService {
     }
 
     public List<BookRoom> getEventsByHourRange(LocalDate date, String startHour, String endHour) {
-        jsonFileManager.loadFromFile(BookRoom.class);
-        return jsonFileManager.getEventList(BookRoom.class).stream()
-                .filter(bookRoom -> LocalDate.parse(bookRoom.getStartDate()).equals(date)
-                        && !LocalTime.parse(bookRoom.getStartTime()).isBefore(LocalTime.parse(startHour))
-                        && !LocalTime.parse(bookRoom.getEndTime()).isAfter(LocalTime.parse(endHour)))
+        // Giờ giới hạn chỉ parse một lần, giờ của từng bản ghi đã được parse sẵn trong model
+        int startMinute = LocalTime.parse(startHour).toSecondOfDay() / 60;
+        int endMinute = LocalTime.parse(endHour).toSecondOfDay() / 60;
+        return bookingsInRange(date, date).stream()
+                .filter(bookRoom -> bookRoom.getStartDay().equals(date)
+                        && bookRoom.getStartMinuteOfDay() >= startMinute
+                        && bookRoom.getEndMinuteOfDay() <= endMinute)
                 .collect(Collectors.toList());
     }
 
-    public void addEvent(BookRoom bookRoom) {
-        jsonFileManager.getEventList(BookRoom.class).add(bookRoom);
-        jsonFileManager.saveToFile();
+    public synchronized void addEvent(BookRoom bookRoom) {
+        if (!store.upsert(null, bookRoom)) {
+            return;
+        }
+        if (dayIndex != null) {
+            indexAdded(bookRoom);
+        }
+        changes.publish(DataChange.added(bookRoom));
     }
 
-    public void updateEvent(BookRoom oldBookRoom, BookRoom newBookRoom) {
-        List<BookRoom> bookRooms = jsonFileManager.getEventList(BookRoom.class);
-        int index = bookRooms.indexOf(oldBookRoom);
-        if (index != -1) {
-            bookRooms.set(index, newBookRoom);
-            jsonFileManager.saveToFile();
+    /**
+     * Sửa một lần diễn ra của chuỗi lặp chỉ tách riêng lần đó: chuỗi thêm ngày bỏ qua, bản sửa được lưu
+     * thành lượt đặt mới, nên listener nhận REMOVED của lần diễn ra rồi ADDED của lượt đặt mới.
+     */
+    public synchronized void updateEvent(BookRoom oldBookRoom, BookRoom newBookRoom) {
+        String oldId = oldBookRoom.getId();
+        if (RecurrenceRule.seriesIdOf(oldId) != null) {
+            if (detachOccurrence(oldId)) {
+                changes.publish(DataChange.removed(oldBookRoom));
+                newBookRoom.setId(null);
+                addEvent(newBookRoom);
+            }
+            return;
+        }
+        if (!store.upsert(oldBookRoom, newBookRoom)) {
+            return;
         }
+        if (dayIndex != null) {
+            indexRemoved(oldId);
+            indexAdded(newBookRoom);
+        }
+        changes.publish(DataChange.updated(oldBookRoom, newBookRoom));
     }
 
-    public boolean deleteEvent(BookRoom bookRoom) {
-        List<BookRoom> bookRooms = jsonFileManager.getEventList(BookRoom.class);
-        // Find and remove the exact BookRoom object based on its unique identifiers
-        // (e.g., fullName, roomName, startDate, startTime)
-        boolean removed = bookRooms.removeIf(br -> br.getFullName().equals(bookRoom.getFullName()) &&
-                br.getRoomName().equals(bookRoom.getRoomName()) &&
-                br.getStartDate().equals(bookRoom.getStartDate()) &&
-                br.getStartTime().equals(bookRoom.getStartTime()));
+    public synchronized boolean deleteEvent(BookRoom bookRoom) {
+        if (RecurrenceRule.seriesIdOf(bookRoom.getId()) != null) {
+            // Xóa một lần diễn ra là thêm ngày bỏ qua cho chuỗi
+            boolean removed = detachOccurrence(bookRoom.getId());
+            if (removed) {
+                changes.publish(DataChange.removed(bookRoom));
+            }
+            return removed;
+        }
+        // Xóa theo id, hai lượt đặt giống hệt nhau vẫn phân biệt được
+        boolean removed = store.delete(bookRoom);
         if (removed) {
-            jsonFileManager.saveToFile();
+            if (dayIndex != null) {
+                indexRemoved(bookRoom.getId());
+            }
+            changes.publish(DataChange.removed(bookRoom));
+        }
+        return removed;
+    }
+
+    // Lô thêm/sửa/xóa được kiểm tra và ghi cùng lúc, xem BatchWriter
+    public BatchWriter batch() {
+        return new BatchWriter(this);
+    }
+
+    /**
+     * Ghi lô đã được BatchWriter kiểm tra (BatchWriter đang giữ khóa của service): kho áp cả lô một lần,
+     * sau đó chỉ mục được cập nhật và thay đổi được phát theo đúng thứ tự thao tác như khi gọi từng hàm.
+     * Các lần diễn ra bị sửa/xóa của cùng một chuỗi dồn thành một lần sửa chuỗi.
+     */
+    synchronized void applyBatch(List<BatchWriter.Item> items) {
+        buildIndexes();
+        List<StoreChange<BookRoom>> storeChanges = new ArrayList<>();
+        // Chuỗi lặp sau khi thêm các ngày bỏ qua, theo id chuỗi
+        Map<String, BookRoom> detached = new LinkedHashMap<>();
+        for (BatchWriter.Item item : items) {
+            if (item.seriesId != null) {
+                BookRoom series = detached.getOrDefault(item.seriesId, series(item.seriesId));
+                String rule = series.getRecurrenceRule()
+                        .withException(RecurrenceRule.occurrenceDateOf(item.previous.getId())).format();
+                detached.put(item.seriesId, series.toBuilder().recurrence(rule).build());
+                if (item.record != null) {
+                    item.record.setId(null);
+                    storeChanges.add(StoreChange.insert(item.record));
+                }
+                continue;
+            }
+            switch (item.operation) {
+                case INSERT:
+                    storeChanges.add(StoreChange.insert(item.record));
+                    break;
+                case UPDATE:
+                    storeChanges.add(StoreChange.update(item.previous, item.record));
+                    break;
+                default:
+                    storeChanges.add(StoreChange.delete(item.previous));
+                    break;
+            }
+        }
+        for (BookRoom series : detached.values()) {
+            storeChanges.add(StoreChange.update(series(series.getId()), series));
+        }
+        if (!store.applyAll(storeChanges)) {
+            for (BatchWriter.Item item : items) {
+                item.fail(BatchItemResult.Status.FAILED, "Không ghi được vào kho, cả lô đã được hoàn tác");
+            }
+            return;
+        }
+
+        for (BookRoom series : detached.values()) {
+            recurrences.add(series);
+        }
+        for (BatchWriter.Item item : items) {
+            if (item.seriesId != null) {
+                changes.publish(DataChange.removed(item.previous));
+                if (item.record != null) {
+                    indexAdded(item.record);
+                    changes.publish(DataChange.added(item.record));
+                }
+            } else if (item.operation == BatchItemResult.Operation.INSERT) {
+                indexAdded(item.record);
+                changes.publish(DataChange.added(item.record));
+            } else if (item.operation == BatchItemResult.Operation.UPDATE) {
+                indexRemoved(item.previous.getId());
+                indexAdded(item.record);
+                changes.publish(DataChange.updated(item.previous, item.record));
+            } else {
+                indexRemoved(item.previous.getId());
+                changes.publish(DataChange.removed(item.previous));
+            }
+            item.status = BatchItemResult.Status.APPLIED;
+        }
+    }
+
+    // Bản ghi đang lưu theo id (không gồm lần diễn ra của chuỗi lặp)
+    BookRoom findStored(String id) {
+        return store.findById(id);
+    }
+
+    BookRoom findSeries(String id) {
+        return series(id);
+    }
+
+    /**
+     * Nhận các thay đổi thêm/sửa/xóa lượt đặt, gọi trên luồng vừa sửa sau khi các chỉ mục đã cập nhật.
+     * View dùng để vá đúng pane bị ảnh hưởng thay vì tải lại toàn bộ.
+     */
+    public void addChangeListener(Consumer<DataChange<BookRoom>> listener) {
+        changes.subscribe(listener);
+    }
+
+    public void removeChangeListener(Consumer<DataChange<BookRoom>> listener) {
+        changes.unsubscribe(listener);
+    }
+
+    // Thêm ngày của lần diễn ra vào danh sách bỏ qua của chuỗi và lưu lại chuỗi
+    private boolean detachOccurrence(String occurrenceId) {
+        BookRoom series = series(RecurrenceRule.seriesIdOf(occurrenceId));
+        if (series == null) {
+            return false;
+        }
+        String rule = series.getRecurrenceRule().withException(RecurrenceRule.occurrenceDateOf(occurrenceId)).format();
+        BookRoom updated = series.toBuilder().recurrence(rule).build();
+        if (!store.upsert(series, updated)) {
+            return false;
+        }
+        recurrences.add(updated);
+        return true;
+    }
+
+    private void indexAdded(BookRoom bookRoom) {
+        if (bookRoom.isRecurring()) {
+            recurrences.add(bookRoom);
+            return;
+        }
+        dayIndex.add(bookRoom);
+        roomIndex.add(bookRoom);
+        bookingTable.add(bookRoom);
+        occupancy.add(bookRoom);
+    }
+
+    private void indexRemoved(String id) {
+        if (recurrences.remove(id) != null) {
+            return;
+        }
+        dayIndex.remove(id);
+        RoomIntervalIndex.Slot old = roomIndex.remove(id);
+        bookingTable.remove(id);
+        if (old != null) {
+            // Bitmap được tính lại từ chỉ mục phòng nên phải gỡ khỏi roomIndex trước
+            occupancy.refresh(old.room, old.start, old.end);
+        }
+    }
+
+    /**
+     * Các lượt đặt của phòng giao với khoảng [start, end), tính bằng epoch-minute
+     * như {@link BookRoom#getStartEpochMinute()}. O(log n + k) trên cây khoảng của phòng.
+     */
+    public synchronized List<BookRoom> findOverlapping(String roomName, long startEpochMinute, long endEpochMinute) {
+        ensureLoaded(startEpochMinute, endEpochMinute);
+        List<BookRoom> overlapping = roomIndex.findOverlapping(roomName, startEpochMinute, endEpochMinute);
+        List<BookRoom> occurrences = recurrences.overlapping(roomName, startEpochMinute, endEpochMinute);
+        if (!occurrences.isEmpty()) {
+            overlapping.addAll(occurrences);
+            overlapping.sort(Comparator.comparingLong(BookRoom::getStartEpochMinute));
+        }
+        return overlapping;
+    }
+
+    /**
+     * Các lượt đặt chồng lên bất kỳ lần diễn ra nào của chuỗi lặp {@code series} (mới hoặc đang sửa),
+     * không tính các lần diễn ra của chính chuỗi đó. Duyệt lần lượt từng lần diễn ra thay vì sinh cả chuỗi;
+     * chuỗi lặp vô hạn được xét đến hết dữ liệu hiện có của phòng cộng thêm {@value #OPEN_SERIES_CHECK_DAYS} ngày,
+     * nên cần nạp toàn bộ kho.
+     */
+    public synchronized List<BookRoom> findSeriesOverlapping(BookRoom series) {
+        RecurrenceRule rule = series.getRecurrenceRule();
+        String roomName = series.getRoomName();
+        if (rule == null) {
+            return findOverlapping(roomName, series.getStartEpochMinute(), series.getEndEpochMinute());
+        }
+        LocalDate first = series.getStartDay();
+        LocalDate last = rule.lastStart(first);
+        if (last == null) {
+            ensureAllLoaded();
+            last = first;
+            long lastEnd = roomIndex.lastEnd(roomName);
+            if (lastEnd != Long.MIN_VALUE) {
+                LocalDate lastBooked = LocalDate.ofEpochDay(Math.floorDiv(lastEnd, RoomOccupancy.MINUTES_PER_DAY));
+                last = lastBooked.isAfter(last) ? lastBooked : last;
+            }
+            LocalDate lastSeries = recurrences.latestStart(roomName);
+            if (lastSeries != null && lastSeries.isAfter(last)) {
+                last = lastSeries;
+            }
+            last = last.plusDays(OPEN_SERIES_CHECK_DAYS);
+        }
+        long span = RecurrenceIndex.spanDays(series);
+        Map<String, BookRoom> found = new LinkedHashMap<>();
+        rule.forEachStart(first, first, last, start -> {
+            BookRoom occurrence = RecurrenceIndex.occurrence(series, start, span);
+            for (BookRoom other : findOverlapping(roomName, occurrence.getStartEpochMinute(),
+                    occurrence.getEndEpochMinute())) {
+                if (series.getId() == null || !series.getId().equals(RecurrenceRule.seriesIdOf(other.getId()))) {
+                    found.put(other.getId(), other);
+                }
+            }
+        });
+        return new ArrayList<>(found.values());
+    }
+
+    // Bảng theo cột của các lượt đặt đã nạp, chắc chắn có đủ các ngày trong [from, to]; dùng cho các vòng lặp vẽ
+    public synchronized BookingTable getBookingTable(LocalDate from, LocalDate to) {
+        ensureLoaded(from, to);
+        return bookingTable;
+    }
+
+    /**
+     * Phòng có trống trong cả khoảng [start, end) epoch-minute không, tra trên bitmap theo phút
+     * nên chỉ tốn vài phép AND cho mỗi ngày mà khoảng đi qua.
+     */
+    public synchronized boolean isRoomFree(String roomName, long startEpochMinute, long endEpochMinute) {
+        ensureLoaded(startEpochMinute, endEpochMinute);
+        return occupancy.isFree(roomName, startEpochMinute, endEpochMinute)
+                && recurrences.overlapping(roomName, startEpochMinute, endEpochMinute).isEmpty();
+    }
+
+    // Các phòng trong danh sách còn trống trong khoảng [start, end)
+    public List<String> getFreeRooms(Collection<String> roomNames, long startEpochMinute, long endEpochMinute) {
+        List<String> result = new ArrayList<>();
+        for (String roomName : roomNames) {
+            if (isRoomFree(roomName, startEpochMinute, endEpochMinute)) {
+                result.add(roomName);
+            }
+        }
+        return result;
+    }
+
+    // Các ngày trong tháng mà phòng trống từ startTime đến endTime
+    public List<LocalDate> getFreeDays(String roomName, YearMonth month, LocalTime startTime, LocalTime endTime) {
+        int startMinute = startTime.toSecondOfDay() / 60;
+        int endMinute = endTime.toSecondOfDay() / 60;
+        List<LocalDate> result = new ArrayList<>();
+        for (LocalDate day = month.atDay(1); !day.isAfter(month.atEndOfMonth()); day = day.plusDays(1)) {
+            long dayStart = day.toEpochDay() * RoomOccupancy.MINUTES_PER_DAY;
+            if (isRoomFree(roomName, dayStart + startMinute, dayStart + endMinute)) {
+                result.add(day);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tìm tối đa {@code limit} khoảng trống dài {@code durationMinutes} trong [from, to) trên các phòng
+     * cho trước, khoảng bắt đầu sớm nhất đứng trước.
+     */
+    public List<FreeSlot> findFreeSlots(int durationMinutes, long fromEpochMinute, long toEpochMinute,
+                                        Collection<String> roomNames, int limit) {
+        return findFreeSlots(durationMinutes, fromEpochMinute, toEpochMinute, roomNames, limit, fromEpochMinute);
+    }
+
+    /**
+     * Như trên nhưng xếp theo độ lệch so với {@code preferredEpochMinute}: mỗi khe trống đủ dài cho
+     * một đề xuất, đặt sát thời điểm mong muốn nhất có thể. Mỗi phòng quét các lượt đặt đã sắp theo
+     * thời điểm bắt đầu trên cây khoảng của phòng (sweep line), nhiều phòng thì quét song song.
+     */
+    public List<FreeSlot> findFreeSlots(int durationMinutes, long fromEpochMinute, long toEpochMinute,
+                                        Collection<String> roomNames, int limit, long preferredEpochMinute) {
+        if (limit <= 0 || durationMinutes <= 0) {
+            return new ArrayList<>();
+        }
+        RoomIntervalIndex index;
+        RecurrenceIndex repeating;
+        synchronized (this) {
+            ensureLoaded(fromEpochMinute, toEpochMinute);
+            index = roomIndex;
+            repeating = recurrences;
+        }
+        Comparator<FreeSlot> rank = Comparator
+                .comparingLong((FreeSlot slot) -> Math.abs(slot.getStartEpochMinute() - preferredEpochMinute))
+                .thenComparingLong(FreeSlot::getStartEpochMinute)
+                .thenComparing(FreeSlot::getRoomName);
+        Stream<String> rooms = roomNames.size() >= PARALLEL_ROOM_THRESHOLD
+                ? roomNames.parallelStream()
+                : roomNames.stream();
+        return rooms.distinct()
+                .flatMap(roomName -> freeSlotsInRoom(index, repeating, roomName, durationMinutes, fromEpochMinute,
+                        toEpochMinute, preferredEpochMinute).stream().sorted(rank).limit(limit))
+                .sorted(rank)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static List<FreeSlot> freeSlotsInRoom(RoomIntervalIndex index, RecurrenceIndex repeating,
+                                                  String roomName, int duration,
+                                                  long from, long to, long preferred) {
+        List<FreeSlot> slots = new ArrayList<>();
+        // Điểm cuối xa nhất của các lượt đặt đã quét, các lượt đặt có thể chồng nhau
+        long[] busyUntil = {from};
+        Consumer<BookRoom> sweep = bookRoom -> {
+            addGap(slots, roomName, busyUntil[0], bookRoom.getStartEpochMinute(), duration, preferred);
+            busyUntil[0] = Math.max(busyUntil[0], bookRoom.getEndEpochMinute());
+        };
+        List<BookRoom> occurrences = repeating.overlapping(roomName, from, to);
+        if (occurrences.isEmpty()) {
+            index.forEachOverlapping(roomName, from, to, sweep);
+        } else {
+            // Trộn lần diễn ra của chuỗi lặp vào, vẫn quét theo thứ tự bắt đầu
+            List<BookRoom> busy = index.findOverlapping(roomName, from, to);
+            busy.addAll(occurrences);
+            busy.sort(Comparator.comparingLong(BookRoom::getStartEpochMinute));
+            busy.forEach(sweep);
+        }
+        addGap(slots, roomName, busyUntil[0], to, duration, preferred);
+        return slots;
+    }
+
+    private static void addGap(List<FreeSlot> slots, String roomName, long gapStart, long gapEnd,
+                               int duration, long preferred) {
+        if (gapEnd - gapStart < duration) {
+            return;
+        }
+        long start = Math.max(gapStart, Math.min(preferred, gapEnd - duration));
+        slots.add(FreeSlot.builder()
+                .roomName(roomName)
+                .startEpochMinute(start)
+                .endEpochMinute(start + duration)
+                .build());
+    }
+
+    // Kho đọc lại dữ liệu đổi ngoài ứng dụng thì bỏ các chỉ mục, các tháng được nạp lại khi có truy vấn chạm tới
+    private synchronized void buildIndexes() {
+        if (dayIndex != null && store.reloadCount() == indexedReloads) {
+            return;
+        }
+        indexedReloads = store.reloadCount();
+        recurrences = new RecurrenceIndex();
+        roomIndex = new RoomIntervalIndex();
+        dayIndex = new DayBucketIndex<>(BookRoom::getStartDay, BookRoom::getEndDay);
+        bookingTable = new BookingTable();
+        // Bitmap dựng theo tháng khi được hỏi, từ hai chỉ mục trên
+        occupancy = new RoomOccupancy(dayIndex, roomIndex);
+        loadedMonths.clear();
+        loadedAll = false;
+    }
+
+    // Nạp các tháng giao với [from, to] chưa có trong chỉ mục, mỗi tháng một lần store.query
+    private synchronized void ensureLoaded(LocalDate from, LocalDate to) {
+        buildIndexes();
+        if (loadedAll) {
+            return;
+        }
+        YearMonth last = YearMonth.from(to);
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(last); month = month.plusMonths(1)) {
+            if (!loadedMonths.contains(month)) {
+                indexLoaded(store.query(month.atDay(1), month.atEndOfMonth()));
+                loadedMonths.add(month);
+            }
+        }
+    }
+
+    // Như trên cho khoảng [start, end) epoch-minute
+    private void ensureLoaded(long startEpochMinute, long endEpochMinute) {
+        if (startEpochMinute >= endEpochMinute) {
+            buildIndexes();
+            return;
+        }
+        ensureLoaded(LocalDate.ofEpochDay(Math.floorDiv(startEpochMinute, RoomOccupancy.MINUTES_PER_DAY)),
+                LocalDate.ofEpochDay(Math.floorDiv(endEpochMinute - 1, RoomOccupancy.MINUTES_PER_DAY)));
+    }
+
+    private synchronized void ensureAllLoaded() {
+        buildIndexes();
+        if (!loadedAll) {
+            indexLoaded(store.loadAll());
+            loadedAll = true;
+        }
+    }
+
+    // Bản ghi kéo dài qua nhiều tháng được nạp lại ở mỗi tháng, các chỉ mục thay bản cũ cùng id nên không bị trùng
+    private void indexLoaded(List<BookRoom> records) {
+        for (BookRoom bookRoom : records) {
+            if (bookRoom.isRecurring() || hasValidTimes(bookRoom)) {
+                indexAdded(bookRoom);
+            }
+        }
+    }
+
+    // Chuỗi lặp theo id; chuỗi chưa nạp thì nạp tháng bắt đầu của nó
+    private synchronized BookRoom series(String id) {
+        buildIndexes();
+        BookRoom series = recurrences.get(id);
+        if (series == null && !loadedAll) {
+            BookRoom stored = store.findById(id);
+            if (stored != null && stored.isRecurring()) {
+                ensureLoaded(stored.getStartDay(), stored.getStartDay());
+                series = recurrences.get(id);
+            }
+        }
+        return series;
+    }
+
+    // Lượt đặt có ngày giờ hỏng (sửa tay ngoài ứng dụng) bị bỏ qua để các chỉ mục cùng một tập bản ghi
+    private static boolean hasValidTimes(BookRoom bookRoom) {
+        try {
+            bookRoom.getStartEpochMinute();
+            bookRoom.getEndEpochMinute();
             return true;
+        } catch (RuntimeException e) {
+            System.err.println("Bỏ qua lượt đặt " + bookRoom.getId() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Quét toàn bộ lượt đặt trong kho để tìm các nhóm chồng lấn, kể cả dữ liệu nhập hoặc sửa ngoài ứng dụng.
+     * Đọc thẳng từ kho, không qua các chỉ mục; các phòng được quét song song trên ForkJoinPool chung.
+     */
+    public List<ConflictGroup> auditConflicts() {
+        return new ConflictAudit(ForkJoinPool.commonPool()).audit(withOccurrences(store.loadAll()));
+    }
+
+    // Thay mỗi chuỗi lặp bằng các lần diễn ra của nó; chuỗi lặp vô hạn chỉ sinh đến ngày cuối cùng có dữ liệu
+    private static List<BookRoom> withOccurrences(List<BookRoom> all) {
+        List<BookRoom> series = new ArrayList<>();
+        List<BookRoom> result = new ArrayList<>(all.size());
+        for (BookRoom bookRoom : all) {
+            (bookRoom.isRecurring() ? series : result).add(bookRoom);
+        }
+        if (series.isEmpty()) {
+            return all;
+        }
+        LocalDate lastDay = null;
+        for (BookRoom bookRoom : all) {
+            try {
+                LocalDate end = bookRoom.getEndDay();
+                lastDay = lastDay == null || end.isAfter(lastDay) ? end : lastDay;
+            } catch (RuntimeException ignored) {
+                // Bản ghi hỏng được ConflictAudit báo riêng
+            }
+        }
+        for (BookRoom bookRoom : series) {
+            try {
+                LocalDate first = bookRoom.getStartDay();
+                LocalDate last = bookRoom.getRecurrenceRule().lastStart(first);
+                result.addAll(RecurrenceIndex.expand(bookRoom, first, last != null ? last : lastDay));
+            } catch (RuntimeException e) {
+                System.err.println("Bỏ qua chuỗi lặp " + bookRoom.getId() + ": " + e.getMessage());
+            }
         }
-        return false;
+        return result;
     }
 
     public List<BookRoom> getAllEventsByRoomName(String roomName) {
-        jsonFileManager.loadFromFile(BookRoom.class);
-        return jsonFileManager.getEventList(BookRoom.class).stream()
+        return store.loadAll().stream()
                 .filter(bookRoom -> bookRoom.getRoomName().equals(roomName))
                 .collect(Collectors.toList());
     }
@@ -1,9 +1,13 @@
 package com.example.calender.service;
 
-import com.example.calender.config.JsonFileManager;
+import com.example.calender.config.EventStore;
+import com.example.calender.config.EventStores;
+import com.example.calender.config.StoreBackend;
+import com.example.calender.config.StoreSpec;
 import com.example.calender.models.Events;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class TimeLineByHoursService {
@@ -17,55 +21,97 @@ public class TimeLineByHoursService {
         return instance;
     }
 
-    private final JsonFileManager jsonFileManager = JsonFileManager.getInstance("timeLine.json");
+    private final EventStore<Events> store = EventStores.create(StoreSpec.<Events>builder()
+            .type(Events.class)
+            .startOf(Events::getDay)
+            .endOf(Events::getDay)
+            .jsonFile("timeLine.json")
+            .table("time_line")
+            .defaultBackend(StoreBackend.JSON)
+            .build());
+
+    // Chỉ mục theo ngày, dựng ở lần truy vấn đầu tiên rồi cập nhật theo từng thay đổi
+    private DayBucketIndex<Events> dayIndex;
+    // reloadCount của kho lúc dựng dayIndex, đổi thì dựng lại từ đầu
+    private long indexedReloads;
+    private final ChangeBus<Events> changes = new ChangeBus<>();
+
+    public List<Events> getAllEvents() {
+        return store.loadAll();
+    }
+
+    // Kiểm tra timeLine.json có bị sửa ngoài ứng dụng không, gọi một lần mỗi lần làm mới view
+    public void refresh() {
+        store.refresh();
+    }
 
     public List<Events> getEventsByDate(LocalDate date) {
-        jsonFileManager.loadFromFile(Events.class);
-        return jsonFileManager.getEventList(Events.class).stream()
-                .filter(event -> event.getDate().equals(date.toString()))
-                .collect(Collectors.toList());
+        return dayIndex().onDay(date);
     }
 
     //lấy dữ liệu trong 3 ngày tính từ hôm này
     public List<Events> getEventsByNextThreeDays(LocalDate date) {
-        jsonFileManager.loadFromFile(Events.class);
-        return jsonFileManager.getEventList(Events.class).stream()
-                .filter(event -> LocalDate.parse(event.getDate()).isAfter(date.minusDays(1))
-                        && LocalDate.parse(event.getDate()).isBefore(date.plusDays(3)))
-                .collect(Collectors.toList());
+        return dayIndex().inRange(date, date.plusDays(2));
     }
 
     public List<Events> getEventsByHourRange(LocalDate date, String startHour, String endHour) {
-        jsonFileManager.loadFromFile(Events.class);
-        return jsonFileManager.getEventList(Events.class).stream()
-                .filter(event -> event.getDate().equals(date.toString())
-                        && event.getStartHour().compareTo(startHour) >= 0
+        return dayIndex().onDay(date).stream()
+                .filter(event -> event.getStartHour().compareTo(startHour) >= 0
                         && event.getEndHour().compareTo(endHour) <= 0)
                 .collect(Collectors.toList());
     }
 
-    public void addEvent(Events event) {
-        jsonFileManager.getEventList(Events.class).add(event);
-        jsonFileManager.saveToFile();
+    public synchronized void addEvent(Events event) {
+        if (store.upsert(null, event)) {
+            if (dayIndex != null) {
+                dayIndex.add(event);
+            }
+            changes.publish(DataChange.added(event));
+        }
     }
 
-    public boolean updateEvent(Events oldEvent, Events newEvent) {
-        List<Events> events = jsonFileManager.getEventList(Events.class);
-        int index = events.indexOf(oldEvent);
-        if (index != -1) {
-            events.set(index, newEvent);
-            jsonFileManager.saveToFile();
-            return true;
+    public synchronized boolean updateEvent(Events oldEvent, Events newEvent) {
+        String oldId = oldEvent.getId();
+        boolean updated = store.upsert(oldEvent, newEvent);
+        if (updated) {
+            if (dayIndex != null) {
+                dayIndex.remove(oldId);
+                dayIndex.add(newEvent);
+            }
+            changes.publish(DataChange.updated(oldEvent, newEvent));
         }
-        return false;
+        return updated;
+    }
+
+    public synchronized boolean deleteEvent(Events event) {
+        boolean removed = store.delete(event);
+        if (removed) {
+            if (dayIndex != null) {
+                dayIndex.remove(event.getId());
+            }
+            changes.publish(DataChange.removed(event));
+        }
+        return removed;
+    }
+
+    // Nhận các thay đổi sự kiện sau khi chỉ mục theo ngày đã cập nhật, gọi trên luồng vừa sửa
+    public void addChangeListener(Consumer<DataChange<Events>> listener) {
+        changes.subscribe(listener);
+    }
+
+    public void removeChangeListener(Consumer<DataChange<Events>> listener) {
+        changes.unsubscribe(listener);
     }
 
-    public boolean deleteEvent(Events event) {
-        List<Events> events = jsonFileManager.getEventList(Events.class);
-        if (events.remove(event)) {
-            jsonFileManager.saveToFile();
-            return true;
+    // Dựng lại khi kho đọc lại dữ liệu đổi ngoài ứng dụng
+    private synchronized DayBucketIndex<Events> dayIndex() {
+        if (dayIndex == null || store.reloadCount() != indexedReloads) {
+            DayBucketIndex<Events> index = new DayBucketIndex<>(Events::getDay, Events::getDay);
+            index.rebuild(store.loadAll());
+            // Đọc sau loadAll để lần đọc đầu tiên không làm dựng lại lần nữa
+            indexedReloads = store.reloadCount();
+            dayIndex = index;
         }
-        return false;
+        return dayIndex;
     }
 }
@@ -0,0 +1,235 @@
+package com.example.calender.service;
+
+import com.example.calender.models.BookRoom;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tổng hợp sử dụng phòng theo từng ngày: mỗi ngày một mảng int theo mã phòng (FIELDS ô mỗi phòng)
+ * và một mảng hiệu số theo phút để tính cao điểm. Dữ liệu được nạp theo tháng khi báo cáo cần tới,
+ * sau đó cộng/trừ theo từng lượt đặt thay đổi nên chỉ các ngày bị chạm tới là đổi.
+ * <p>
+ * Tổng của một kỳ (nhiều ngày) được giữ lại cùng thời điểm dựng; kỳ chỉ được cộng lại khi có ngày
+ * trong kỳ đổi sau thời điểm đó. Không tự đồng bộ, {@link ReportService} giữ khóa khi đọc/ghi.
+ */
+class UsageRollup {
+
+    static final int MINUTES = 0;
+    static final int BOOKINGS = 1;
+    static final int APPROVED = 2;
+    static final int PENDING = 3;
+    static final int REJECTED = 4;
+    static final int FIELDS = 5;
+
+    private static final int MINUTES_PER_DAY = RoomOccupancy.MINUTES_PER_DAY;
+
+    private final Map<String, Integer> roomCodes = new HashMap<>();
+    private final List<String> roomNames = new ArrayList<>();
+    private final Set<YearMonth> loaded = new HashSet<>();
+    private final Map<Long, Day> days = new HashMap<>();
+    // Tổng theo kỳ, khóa "ngày đầu/ngày cuối"; các kỳ của một báo cáo được tính song song
+    private final Map<String, Period> periods = new ConcurrentHashMap<>();
+    // Tăng mỗi lần có ngày đổi, kỳ dựng trước mốc đổi của một ngày trong kỳ là đã cũ
+    private long clock;
+
+    static final class Day {
+        int[] stats = new int[0];
+        // delta[m] là số lượt đặt bắt đầu trừ số lượt kết thúc tại phút m
+        final int[] delta = new int[MINUTES_PER_DAY + 1];
+        int peak;
+        boolean peakDirty;
+        long modified;
+
+        int peak() {
+            if (peakDirty) {
+                int running = 0;
+                int max = 0;
+                for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                    running += delta[minute];
+                    max = Math.max(max, running);
+                }
+                peak = max;
+                peakDirty = false;
+            }
+            return peak;
+        }
+    }
+
+    // Mảng stats có thể ngắn hơn số phòng hiện tại nếu phòng mới xuất hiện sau khi dựng, phần thiếu là 0
+    static final class Period {
+        final long[] stats;
+        final int peak;
+        final long builtAt;
+
+        Period(long[] stats, int peak, long builtAt) {
+            this.stats = stats;
+            this.peak = peak;
+            this.builtAt = builtAt;
+        }
+    }
+
+    boolean isLoaded(YearMonth month) {
+        return loaded.contains(month);
+    }
+
+    // Nạp các lượt đặt giao với tháng, chỉ phần nằm trong tháng được tính.
+    // Tháng chỉ được đánh dấu đã nạp khi nạp xong, lượt đặt có ngày giờ hỏng bị bỏ qua
+    void load(YearMonth month, Collection<BookRoom> bookings) {
+        for (BookRoom bookRoom : bookings) {
+            try {
+                apply(bookRoom, 1, month);
+            } catch (RuntimeException e) {
+                System.err.println("Bỏ qua lượt đặt " + bookRoom.getId() + ": " + e.getMessage());
+            }
+        }
+        loaded.add(month);
+    }
+
+    void add(BookRoom bookRoom) {
+        apply(bookRoom, 1, null);
+    }
+
+    void remove(BookRoom bookRoom) {
+        apply(bookRoom, -1, null);
+    }
+
+    Set<YearMonth> loadedMonths() {
+        return loaded;
+    }
+
+    // Cộng (sign = 1) hoặc trừ (sign = -1) lượt đặt vào các ngày thuộc tháng đã nạp, hoặc chỉ tháng onlyMonth
+    void apply(BookRoom bookRoom, int sign, YearMonth onlyMonth) {
+        if (bookRoom.getRoomName() == null) {
+            return;
+        }
+        long start = bookRoom.getStartEpochMinute();
+        long end = bookRoom.getEndEpochMinute();
+        long startDay = Math.floorDiv(start, MINUTES_PER_DAY);
+        long lastDay = end > start ? Math.floorDiv(end - 1, MINUTES_PER_DAY) : startDay;
+        int field = statusField(bookRoom.getStatus());
+        int room = -1;
+        for (long epochDay = startDay; epochDay <= lastDay; epochDay++) {
+            YearMonth month = YearMonth.from(LocalDate.ofEpochDay(epochDay));
+            if (onlyMonth != null ? !onlyMonth.equals(month) : !loaded.contains(month)) {
+                continue;
+            }
+            if (room < 0) {
+                room = roomCode(bookRoom.getRoomName());
+            }
+            Day day = day(epochDay, room);
+            long dayStart = epochDay * MINUTES_PER_DAY;
+            int from = (int) (Math.max(start, dayStart) - dayStart);
+            int to = (int) (Math.min(end, dayStart + MINUTES_PER_DAY) - dayStart);
+            int base = room * FIELDS;
+            if (to > from) {
+                day.stats[base + MINUTES] += sign * (to - from);
+                if (field >= 0) {
+                    day.stats[base + field] += sign * (to - from);
+                }
+                day.delta[from] += sign;
+                day.delta[to] -= sign;
+                day.peakDirty = true;
+            }
+            if (epochDay == startDay) {
+                // Lượt đặt được đếm ở ngày bắt đầu
+                day.stats[base + BOOKINGS] += sign;
+            }
+            day.modified = ++clock;
+        }
+    }
+
+    int roomCount() {
+        return roomNames.size();
+    }
+
+    String roomName(int code) {
+        return roomNames.get(code);
+    }
+
+    /**
+     * Tổng của kỳ [from, to], dùng lại kết quả cũ nếu không ngày nào trong kỳ đổi kể từ lần dựng.
+     * Các kỳ khác nhau không chung ngày nên gọi song song được khi không có ghi.
+     */
+    Period period(LocalDate from, LocalDate to) {
+        String key = from + "/" + to;
+        Period cached = periods.get(key);
+        long firstDay = from.toEpochDay();
+        long lastDay = to.toEpochDay();
+        if (cached != null && !changedSince(firstDay, lastDay, cached.builtAt)) {
+            return cached;
+        }
+        long builtAt = clock;
+        long[] stats = new long[roomCount() * FIELDS];
+        int peak = 0;
+        for (long epochDay = firstDay; epochDay <= lastDay; epochDay++) {
+            Day day = days.get(epochDay);
+            if (day == null) {
+                continue;
+            }
+            int[] dayStats = day.stats;
+            for (int i = 0; i < dayStats.length; i++) {
+                stats[i] += dayStats[i];
+            }
+            peak = Math.max(peak, day.peak());
+        }
+        Period period = new Period(stats, peak, builtAt);
+        periods.put(key, period);
+        return period;
+    }
+
+    private boolean changedSince(long firstDay, long lastDay, long builtAt) {
+        for (long epochDay = firstDay; epochDay <= lastDay; epochDay++) {
+            Day day = days.get(epochDay);
+            if (day != null && day.modified > builtAt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Day day(long epochDay, int room) {
+        Day day = days.get(epochDay);
+        if (day == null) {
+            day = new Day();
+            days.put(epochDay, day);
+        }
+        int needed = (room + 1) * FIELDS;
+        if (day.stats.length < needed) {
+            day.stats = Arrays.copyOf(day.stats, Math.max(needed, roomCount() * FIELDS));
+        }
+        return day;
+    }
+
+    private int roomCode(String roomName) {
+        Integer code = roomCodes.get(roomName);
+        if (code == null) {
+            code = roomNames.size();
+            roomNames.add(roomName);
+            roomCodes.put(roomName, code);
+        }
+        return code;
+    }
+
+    private static int statusField(String status) {
+        if ("approved".equalsIgnoreCase(status)) {
+            return APPROVED;
+        }
+        if ("pending".equalsIgnoreCase(status)) {
+            return PENDING;
+        }
+        if ("rejected".equalsIgnoreCase(status)) {
+            return REJECTED;
+        }
+        return -1;
+    }
+}
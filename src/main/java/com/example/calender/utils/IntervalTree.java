@@ -0,0 +1,225 @@
+package com.example.calender.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Cây khoảng (interval tree) cân bằng AVL, mỗi nút lưu thêm điểm kết thúc lớn nhất của cây con
+ * để bỏ qua các nhánh không thể giao với khoảng cần tìm.
+ * Khoảng là nửa mở [start, end). Các phần tử được sắp theo (start, end, key) nên key phải duy nhất
+ * với cùng một khoảng; thêm, xóa O(log n), tìm các khoảng giao nhau O(log n + k).
+ */
+public class IntervalTree<K extends Comparable<? super K>, V> {
+
+    private Node<K, V> root;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    public void insert(long start, long end, K key, V value) {
+        root = insert(root, new Node<>(start, end, key, value));
+    }
+
+    public boolean remove(long start, long end, K key) {
+        int before = size;
+        root = remove(root, start, end, key);
+        return size < before;
+    }
+
+    public List<V> findOverlapping(long start, long end) {
+        List<V> result = new ArrayList<>();
+        forEachOverlapping(start, end, result::add);
+        return result;
+    }
+
+    public void forEachOverlapping(long start, long end, Consumer<? super V> consumer) {
+        visit(root, start, end, consumer);
+    }
+
+    // Điểm kết thúc lớn nhất trong cây, Long.MIN_VALUE nếu cây rỗng
+    public long maxEnd() {
+        return root == null ? Long.MIN_VALUE : root.maxEnd;
+    }
+
+    public boolean hasOverlap(long start, long end) {
+        return firstOverlap(root, start, end) != null;
+    }
+
+    private void visit(Node<K, V> node, long start, long end, Consumer<? super V> consumer) {
+        // Không có khoảng nào trong cây con kết thúc sau start
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        visit(node.left, start, end, consumer);
+        if (node.start >= end) {
+            // Các nút bên phải đều bắt đầu từ node.start trở đi nên cũng không giao
+            return;
+        }
+        if (start < node.end) {
+            consumer.accept(node.value);
+        }
+        visit(node.right, start, end, consumer);
+    }
+
+    private Node<K, V> firstOverlap(Node<K, V> node, long start, long end) {
+        while (node != null) {
+            if (node.start < end && start < node.end) {
+                return node;
+            }
+            if (node.left != null && node.left.maxEnd > start) {
+                node = node.left;
+            } else if (node.start < end) {
+                node = node.right;
+            } else {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private int compare(long start, long end, K key, Node<K, V> node) {
+        int c = Long.compare(start, node.start);
+        if (c == 0) {
+            c = Long.compare(end, node.end);
+        }
+        return c != 0 ? c : key.compareTo(node.key);
+    }
+
+    private Node<K, V> insert(Node<K, V> node, Node<K, V> added) {
+        if (node == null) {
+            size++;
+            return added;
+        }
+        int c = compare(added.start, added.end, added.key, node);
+        if (c < 0) {
+            node.left = insert(node.left, added);
+        } else if (c > 0) {
+            node.right = insert(node.right, added);
+        } else {
+            // Cùng khoảng và key: thay giá trị
+            node.value = added.value;
+            return node;
+        }
+        return balance(node);
+    }
+
+    private Node<K, V> remove(Node<K, V> node, long start, long end, K key) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(start, end, key, node);
+        if (c < 0) {
+            node.left = remove(node.left, start, end, key);
+        } else if (c > 0) {
+            node.right = remove(node.right, start, end, key);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Thay bằng nút nhỏ nhất của cây con phải
+            Node<K, V> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private Node<K, V> removeMin(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+    private Node<K, V> balance(Node<K, V> node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<K, V> rotateRight(Node<K, V> node) {
+        Node<K, V> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private Node<K, V> rotateLeft(Node<K, V> node) {
+        Node<K, V> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node<?, ?> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > maxEnd) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static final class Node<K, V> {
+        final long start;
+        final long end;
+        final K key;
+        V value;
+        long maxEnd;
+        int height = 1;
+        Node<K, V> left;
+        Node<K, V> right;
+
+        Node(long start, long end, K key, V value) {
+            this.start = start;
+            this.end = end;
+            this.key = key;
+            this.value = value;
+            this.maxEnd = end;
+        }
+    }
+}
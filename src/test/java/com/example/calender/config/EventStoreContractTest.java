@@ -0,0 +1,231 @@
+package com.example.calender.config;
+
+import com.example.calender.models.BookRoom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cùng một kịch bản trên mọi backend của {@link EventStore} (JSON, BINARY, SHARDED, H2): thêm, đọc lại từ đĩa,
+ * truy vấn theo khoảng ngày, tìm theo id, sửa và xóa. Dữ liệu nằm trong thư mục tạm của từng test.
+ */
+class EventStoreContractTest {
+
+    private static final int RECORDS = 300;
+    private static final int MONTHS = 6;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+
+    @TempDir
+    Path dataRoot;
+
+    // Kho đã mở trong test, đóng sau test để H2 nhả file trước khi thư mục tạm bị xóa
+    private final List<EventStore<BookRoom>> opened = new ArrayList<>();
+
+    @BeforeEach
+    void useTempDataRoot() {
+        JsonFileManager.setDataRoot(dataRoot.toString());
+    }
+
+    @AfterEach
+    void restoreDataRoot() {
+        for (EventStore<BookRoom> store : opened) {
+            store.close();
+        }
+        // Luồng ghi nền phải xong trước khi thư mục tạm bị xóa
+        JsonFileManager.flushAll();
+        JsonFileManager.setDataRoot(null);
+    }
+
+    @Test
+    void reloadedStoreReturnsEveryRecord() {
+        for (StoreBackend backend : StoreBackend.values()) {
+            List<BookRoom> bookings = bookings();
+            EventStore<BookRoom> store = open(backend);
+            for (BookRoom bookRoom : bookings) {
+                assertTrue(store.upsert(null, bookRoom), backend + ": thêm");
+                assertNotNull(bookRoom.getId(), backend + ": kho gán id khi thêm");
+            }
+            store.flush();
+
+            EventStore<BookRoom> reopened = reopen(backend);
+            assertEquals(ids(bookings), ids(reopened.loadAll()), backend + ": đọc lại từ đĩa");
+            for (BookRoom bookRoom : bookings) {
+                BookRoom found = reopened.findById(bookRoom.getId());
+                assertNotNull(found, backend + ": findById " + bookRoom.getId());
+                assertEquals(bookRoom.getRoomName(), found.getRoomName(), backend.name());
+                assertEquals(bookRoom.getStartDate(), found.getStartDate(), backend.name());
+                assertEquals(bookRoom.getPurpose(), found.getPurpose(), backend.name());
+            }
+        }
+    }
+
+    @Test
+    void queryReturnsRecordsOverlappingTheRange() {
+        for (StoreBackend backend : StoreBackend.values()) {
+            List<BookRoom> bookings = bookings();
+            // Lượt đặt kéo dài qua hai tháng phải được tìm thấy từ cả tháng sau
+            bookings.add(booking("Dài ngày", FIRST_DAY.plusMonths(1).minusDays(2), FIRST_DAY.plusMonths(1).plusDays(3)));
+            EventStore<BookRoom> store = open(backend);
+            for (BookRoom bookRoom : bookings) {
+                store.upsert(null, bookRoom);
+            }
+            store.flush();
+
+            for (int month = 0; month < MONTHS; month++) {
+                LocalDate from = FIRST_DAY.plusMonths(month);
+                LocalDate to = from.plusMonths(1).minusDays(1);
+                Set<String> expected = new HashSet<>();
+                for (BookRoom bookRoom : bookings) {
+                    if (!bookRoom.getStartDay().isAfter(to) && !bookRoom.getEndDay().isBefore(from)) {
+                        expected.add(bookRoom.getId());
+                    }
+                }
+                assertEquals(expected, ids(store.query(from, to)), backend + ": tháng " + from);
+            }
+            assertTrue(store.query(FIRST_DAY.minusYears(1), FIRST_DAY.minusDays(1)).isEmpty(),
+                    backend + ": khoảng không có dữ liệu");
+        }
+    }
+
+    @Test
+    void updateKeepsIdAndDeleteRemoves() {
+        for (StoreBackend backend : StoreBackend.values()) {
+            List<BookRoom> bookings = bookings();
+            EventStore<BookRoom> store = open(backend);
+            for (BookRoom bookRoom : bookings) {
+                store.upsert(null, bookRoom);
+            }
+
+            // Sửa sang tháng khác: bản ghi mới nhận lại id cũ, kể cả khi đã có id riêng
+            BookRoom previous = bookings.get(0);
+            BookRoom moved = previous.toBuilder()
+                    .id("id-riêng")
+                    .startDate(FIRST_DAY.plusMonths(MONTHS - 1).toString())
+                    .endDate(FIRST_DAY.plusMonths(MONTHS - 1).toString())
+                    .purpose("Đã sửa")
+                    .build();
+            assertTrue(store.upsert(previous, moved), backend + ": sửa");
+            assertEquals(previous.getId(), moved.getId(), backend + ": giữ id");
+            store.flush();
+
+            EventStore<BookRoom> reopened = reopen(backend);
+            assertEquals("Đã sửa", reopened.findById(previous.getId()).getPurpose(), backend.name());
+            assertEquals(RECORDS, reopened.loadAll().size(), backend + ": sửa không thêm bản ghi");
+            assertTrue(ids(reopened.query(FIRST_DAY.plusMonths(MONTHS - 1), FIRST_DAY.plusMonths(MONTHS - 1)))
+                    .contains(previous.getId()), backend + ": truy vấn theo ngày mới");
+
+            BookRoom removed = bookings.get(1);
+            assertTrue(reopened.delete(removed), backend + ": xóa");
+            assertNull(reopened.findById(removed.getId()), backend + ": đã xóa");
+            assertEquals(RECORDS - 1, reopened.loadAll().size(), backend.name());
+            assertFalse(reopened.delete(removed), backend + ": xóa lần hai");
+            assertFalse(reopened.upsert(removed, removed.toBuilder().build()), backend + ": sửa bản ghi đã xóa");
+        }
+    }
+
+    private EventStore<BookRoom> open(StoreBackend backend) {
+        StoreSpec<BookRoom> spec = spec(backend);
+        EventStore<BookRoom> store;
+        switch (backend) {
+            case BINARY:
+                store = new JsonEventStore<>(spec, true);
+                break;
+            case SHARDED:
+                store = new MonthShardedStore<>(spec.getShardDirectory(), spec.getType(),
+                        spec.getStartOf(), spec.getEndOf(), null);
+                break;
+            case H2:
+                store = new JdbcEventStore<>("jdbc:h2:" + dataRoot.resolve("h2").toAbsolutePath(), spec, null);
+                break;
+            default:
+                store = new JsonEventStore<>(spec, false);
+                break;
+        }
+        opened.add(store);
+        return store;
+    }
+
+    // Kho mới trên cùng dữ liệu, cache của các file JSON bị bỏ để dữ liệu được đọc lại từ đĩa
+    private EventStore<BookRoom> reopen(StoreBackend backend) {
+        File[] files = dataRoot.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                invalidate(file, "");
+            }
+        }
+        return open(backend);
+    }
+
+    private static void invalidate(File file, String prefix) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    invalidate(child, prefix + file.getName() + "/");
+                }
+            }
+        } else if (file.getName().endsWith(".json")) {
+            JsonFileManager.getInstance(prefix + file.getName()).invalidate();
+        }
+    }
+
+    private static StoreSpec<BookRoom> spec(StoreBackend backend) {
+        String name = backend.name().toLowerCase();
+        return StoreSpec.<BookRoom>builder()
+                .type(BookRoom.class)
+                .startOf(BookRoom::getStartDay)
+                .endOf(BookRoom::getEndDay)
+                .jsonFile(name + ".json")
+                .shardDirectory(name)
+                .table("bookings_" + name)
+                .build();
+    }
+
+    private static Set<String> ids(List<BookRoom> bookings) {
+        Set<String> ids = new HashSet<>();
+        for (BookRoom bookRoom : bookings) {
+            ids.add(bookRoom.getId());
+        }
+        return ids;
+    }
+
+    private static List<BookRoom> bookings() {
+        Random random = new Random(7);
+        int days = (int) (FIRST_DAY.plusMonths(MONTHS).toEpochDay() - FIRST_DAY.toEpochDay());
+        List<BookRoom> bookings = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            LocalDate day = FIRST_DAY.plusDays(random.nextInt(days));
+            bookings.add(booking("Người đặt " + i, day, day));
+        }
+        return bookings;
+    }
+
+    private static BookRoom booking(String fullName, LocalDate start, LocalDate end) {
+        return BookRoom.builder()
+                .fullName(fullName)
+                .roomName("Phòng " + Math.floorMod(fullName.hashCode(), 20))
+                .startDate(start.toString())
+                .endDate(end.toString())
+                .startTime("09:00")
+                .endTime("10:30")
+                .purpose("Họp nhóm")
+                .status("approved")
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.calender.config;
+
+import com.example.calender.models.BookRoom;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StringDictionaryTest {
+
+    private static final int RECORDS = 50_000;
+    private static final int ROOMS = 20;
+    private static final String[] COLORS = {"#ff0000", "#00ff00", "#0000ff", "#ffaa00"};
+    private static final String[] STATUSES = {"approved", "pending", "rejected"};
+
+    @Test
+    void internReturnsSharedInstance() {
+        StringDictionary dictionary = new StringDictionary();
+        String first = dictionary.intern(new String("Phòng 1"));
+        String second = dictionary.intern(new String("Phòng 1"));
+
+        assertSame(first, second);
+        assertEquals(1, dictionary.size());
+        assertNull(dictionary.intern(null));
+    }
+
+    @Test
+    void valuesPastCapAreKeptAsIs() {
+        StringDictionary dictionary = new StringDictionary(2);
+        dictionary.intern("a");
+        dictionary.intern("b");
+        String c = new String("c");
+
+        assertSame(c, dictionary.intern(c));
+        assertEquals(2, dictionary.size());
+        // Giá trị đã có vẫn được dùng chung
+        assertSame(dictionary.intern("a"), dictionary.intern(new String("a")));
+    }
+
+    @Test
+    void loadedBookingsShareLowCardinalityFields() {
+        List<BookRoom> bookings = parse(new StringDictionary(), json());
+
+        assertEquals(RECORDS, bookings.size());
+        assertEquals(ROOMS, distinctInstances(bookings, Field.ROOM));
+        assertEquals(COLORS.length, distinctInstances(bookings, Field.COLOR));
+        assertEquals(STATUSES.length, distinctInstances(bookings, Field.STATUS));
+        // Trường nhiều giá trị khác nhau không đi qua từ điển
+        assertEquals(RECORDS, distinctInstances(bookings, Field.NAME));
+    }
+
+    private enum Field {ROOM, COLOR, STATUS, NAME}
+
+    private static int distinctInstances(List<BookRoom> bookings, Field field) {
+        Set<String> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (BookRoom bookRoom : bookings) {
+            switch (field) {
+                case ROOM:
+                    instances.add(bookRoom.getRoomName());
+                    break;
+                case COLOR:
+                    instances.add(bookRoom.getColor());
+                    break;
+                case STATUS:
+                    instances.add(bookRoom.getStatus());
+                    break;
+                default:
+                    instances.add(bookRoom.getFullName());
+                    break;
+            }
+        }
+        return instances.size();
+    }
+
+    private static List<BookRoom> parse(StringDictionary dictionary, String json) {
+        Gson gson = JsonFileManager.newGsonBuilder(dictionary).create();
+        return gson.fromJson(json, TypeToken.getParameterized(List.class, BookRoom.class).getType());
+    }
+
+    // Dữ liệu giả: 20 phòng, 4 màu, 3 trạng thái, giờ theo từng 15 phút trong 10 tiếng
+    private static String json() {
+        List<BookRoom> bookings = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            int quarter = i % 40;
+            bookings.add(BookRoom.builder()
+                    .id("id-" + i)
+                    .fullName("Người đặt " + i)
+                    .email("user" + (i % 500) + "@example.com")
+                    .roomName("Phòng " + (i % ROOMS))
+                    .startDate("2025-01-" + (10 + i % 20))
+                    .endDate("2025-01-" + (10 + i % 20))
+                    .startTime(time(8 * 60 + quarter * 15))
+                    .endTime(time(8 * 60 + quarter * 15 + 30))
+                    .color(COLORS[i % COLORS.length])
+                    .status(STATUSES[i % STATUSES.length])
+                    .build());
+        }
+        return JsonFileManager.newGsonBuilder(new StringDictionary()).create().toJson(bookings);
+    }
+
+    private static String time(int minutes) {
+        return String.format("%02d:%02d", minutes / 60, minutes % 60);
+    }
+}